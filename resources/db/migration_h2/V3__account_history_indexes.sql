@@ -0,0 +1,6 @@
+CREATE INDEX IF NOT EXISTS transaction_sender_id_block_timestamp_idx ON transaction (sender_id, block_timestamp DESC, id DESC);
+CREATE INDEX IF NOT EXISTS transaction_recipient_id_block_timestamp_idx ON transaction (recipient_id, block_timestamp DESC, id DESC);
+DROP INDEX IF EXISTS transaction_sender_id_idx;
+DROP INDEX IF EXISTS transaction_recipient_id_idx;
+CREATE INDEX IF NOT EXISTS block_generator_id_height_idx ON block (generator_id, height DESC);
+DROP INDEX IF EXISTS block_generator_id_idx;
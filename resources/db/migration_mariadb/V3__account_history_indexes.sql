@@ -0,0 +1,6 @@
+CREATE INDEX transaction_sender_id_block_timestamp_idx ON `transaction` (sender_id, block_timestamp, id);
+CREATE INDEX transaction_recipient_id_block_timestamp_idx ON `transaction` (recipient_id, block_timestamp, id);
+DROP INDEX transaction_sender_id_idx ON `transaction`;
+DROP INDEX transaction_recipient_id_idx ON `transaction`;
+CREATE INDEX block_generator_id_height_idx ON block (generator_id, height);
+DROP INDEX block_generator_id_idx ON block;
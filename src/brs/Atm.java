@@ -157,16 +157,16 @@ public final class Atm {
       final DerivedTableManager derivedTableManager = new DerivedTableManager();
 
       final StatisticsManagerImpl statisticsManager = new StatisticsManagerImpl(timeService);
-      dbCacheManager = new DBCacheManagerImpl(statisticsManager);
+      dbCacheManager = new DBCacheManagerImpl(propertyService, statisticsManager);
 
       threadPool = new ThreadPool(propertyService);
 
       LoggerConfigurator.init();
 
       Db.init(propertyService, dbCacheManager);
-      dbs = Db.getDbsByDatabaseType();
+      dbs = Db.getDbsByDatabaseType(threadPool);
 
-      stores = new Stores(derivedTableManager, dbCacheManager, timeService, propertyService, dbs.getTransactionDb());
+      stores = new Stores(derivedTableManager, dbCacheManager, timeService, propertyService);
 
       final TransactionDb transactionDb = dbs.getTransactionDb();
       final BlockDb blockDb =  dbs.getBlockDb();
@@ -196,7 +196,7 @@ public final class Atm {
 
       final DownloadCacheImpl downloadCache = new DownloadCacheImpl(propertyService, fluxCapacitor, blockchain);
 
-      final IndirectIncomingService indirectIncomingService = new IndirectIncomingServiceImpl(stores.getIndirectIncomingStore(), propertyService);
+      final IndirectIncomingServiceImpl indirectIncomingService = new IndirectIncomingServiceImpl(stores.getIndirectIncomingStore(), propertyService);
 
       final BlockService blockService = new BlockServiceImpl(accountService, transactionService, blockchain, downloadCache, generator);
       blockchainProcessor = new BlockchainProcessorImpl(threadPool, blockService, transactionProcessor, blockchain, propertyService, subscriptionService,
@@ -204,6 +204,13 @@ public final class Atm {
           blockDb, transactionDb, economicClustering, blockchainStore, stores, escrowService, transactionService, downloadCache, generator, statisticsManager,
           dbCacheManager, accountService, indirectIncomingService);
 
+      if (indirectIncomingService.isAsync()) {
+        final IndirectIncomingIndexer indirectIncomingIndexer = new IndirectIncomingIndexer(indirectIncomingService, stores.getIndirectIncomingStore(),
+            blockchain, blockchainStore, stores, blockchainProcessor::isScanning);
+        blockchainProcessor.addListener(block -> indirectIncomingIndexer.blockPopped(block.getHeight()), BlockchainProcessor.Event.BLOCK_POPPED);
+        threadPool.scheduleThread("IndexIndirectIncomings", indirectIncomingIndexer, 10);
+      }
+
       final FeeSuggestionCalculator feeSuggestionCalculator = new FeeSuggestionCalculator(blockchainProcessor, blockchainStore, 10);
 
       generator.generateForBlockchainProcessor(threadPool, blockchainProcessor);
@@ -307,6 +314,9 @@ public final class Atm {
       apiV2Server.shutdownNow();
     Peers.shutdown(threadPool);
     threadPool.shutdown();
+    if (blockchainProcessor != null) {
+      blockchainProcessor.shutdown();
+    }
     if(! ignoreDBShutdown) {
       Db.shutdown();
     }
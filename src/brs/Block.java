@@ -12,6 +12,10 @@ import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -51,7 +55,6 @@ public class Block {
   private final byte[] blockATs;
 
   private Peer downloadedFrom = null;
-  private int byteLength = 0;
 
   Block(int version, int timestamp, long previousBlockId, long totalAmountNQT, long totalFeeNQT,
       int payloadLength, byte[] payloadHash, byte[] generatorPublicKey, byte[] generationSignature,
@@ -121,12 +124,16 @@ public class Block {
     return this.downloadedFrom;
   }
 
-  public void setByteLength(int length) {
-    this.byteLength = length;
-  }
-
+  /**
+   * @return the serialised size of this block with its transactions, see {@link #getBytes()}
+   */
   public int getByteLength() {
-    return this.byteLength;
+    int length = 4 + 4 + 8 + 4 + (version < 3 ? (4 + 4) : (8 + 8)) + 4 + 32 + 32 + (32 + 32) + 8
+        + (blockATs != null ? blockATs.length : 0) + 64;
+    for (Transaction transaction : getTransactions()) {
+      length += transaction.getSize();
+    }
+    return length;
   }
 
   public int getVersion() {
@@ -307,6 +314,110 @@ public class Block {
     }
   }
 
+  /**
+   * Binary frame used for block transfer between peers: the number of blocks, then for every block
+   * its length prefixed {@link #getBytes()} followed by the number of transactions and their
+   * length prefixed {@link Transaction#getBytes()}. All integers are big endian.
+   */
+  public static byte[] toBinaryFrame(Collection<? extends Block> blocks) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(blocks.size());
+      for (Block block : blocks) {
+        byte[] blockBytes = block.getBytes();
+        out.writeInt(blockBytes.length);
+        out.write(blockBytes);
+        List<Transaction> transactions = new ArrayList<>();
+        for (Transaction transaction : block.getTransactions()) {
+          // unsigned transactions are dropped by the receiver anyway, see parseBlock
+          if (transaction.getSignature() != null) {
+            transactions.add(transaction);
+          }
+        }
+        out.writeInt(transactions.size());
+        for (Transaction transaction : transactions) {
+          byte[] transactionBytes = transaction.getBytes();
+          out.writeInt(transactionBytes.length);
+          out.write(transactionBytes);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Reads the next block of a binary frame created by {@link #toBinaryFrame(Collection)}.
+   * The buffer must be positioned after the block count or after the previous block.
+   */
+  static Block parseBlock(ByteBuffer binaryFrame, int height) throws AtmException.ValidationException {
+    byte[] blockBytes = new byte[getFrameLength(binaryFrame)];
+    binaryFrame.get(blockBytes);
+    int transactionCount = binaryFrame.getInt();
+    if (transactionCount < 0 || transactionCount > Atm.getFluxCapacitor().getValue(FluxValues.MAX_NUMBER_TRANSACTIONS, height)) {
+      throw new AtmException.NotValidException("Invalid number of transactions in block frame: " + transactionCount);
+    }
+
+    SortedMap<Long, Transaction> blockTransactions = new TreeMap<>();
+    for (int i = 0; i < transactionCount; i++) {
+      byte[] transactionBytes = new byte[getFrameLength(binaryFrame)];
+      binaryFrame.get(transactionBytes);
+      Transaction transaction = Transaction.parseTransaction(transactionBytes, height);
+      if (transaction.getSignature() != null && blockTransactions.put(transaction.getId(), transaction) != null) {
+        throw new AtmException.NotValidException("Block contains duplicate transactions: " + transaction.getStringId());
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(blockBytes);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    int version = buffer.getInt();
+    if (version != 3) {
+      throw new AtmException.NotValidException("Binary block frames are only supported for block version 3, got " + version);
+    }
+    int timestamp = buffer.getInt();
+    long previousBlock = buffer.getLong();
+    if (buffer.getInt() != transactionCount) {
+      throw new AtmException.NotValidException("Transaction count doesn't match block header");
+    }
+    long totalAmountNQT = buffer.getLong();
+    long totalFeeNQT = buffer.getLong();
+    int payloadLength = buffer.getInt();
+    byte[] payloadHash = new byte[32];
+    buffer.get(payloadHash);
+    byte[] generatorPublicKey = new byte[32];
+    buffer.get(generatorPublicKey);
+    byte[] generationSignature = new byte[32];
+    buffer.get(generationSignature);
+    byte[] previousBlockHash = new byte[32];
+    buffer.get(previousBlockHash);
+    long nonce = buffer.getLong();
+    int blockATsLength = buffer.remaining() - 64;
+    if (blockATsLength < 0) {
+      throw new AtmException.NotValidException("Block bytes are too short");
+    }
+    // like the JSON format, a block without ATs has no AT bytes rather than an empty array
+    byte[] blockATs = null;
+    if (blockATsLength > 0) {
+      blockATs = new byte[blockATsLength];
+      buffer.get(blockATs);
+    }
+    byte[] blockSignature = new byte[64];
+    buffer.get(blockSignature);
+
+    return new Block(version, timestamp, previousBlock, totalAmountNQT, totalFeeNQT,
+        payloadLength, payloadHash, generatorPublicKey, generationSignature, blockSignature,
+        previousBlockHash, new ArrayList<>(blockTransactions.values()), nonce, blockATs, height);
+  }
+
+  private static int getFrameLength(ByteBuffer binaryFrame) throws AtmException.NotValidException {
+    int length = binaryFrame.getInt();
+    if (length < 0 || length > binaryFrame.remaining()) {
+      throw new AtmException.NotValidException("Invalid length in block frame: " + length);
+    }
+    return length;
+  }
+
   public byte[] getBytes() {
     ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + (version < 3 ? (4 + 4) : (8 + 8)) + 4
         + 32 + 32 + (32 + 32) + 8 + (blockATs != null ? blockATs.length : 0) + 64);
@@ -0,0 +1,129 @@
+package brs;
+
+import brs.BlockchainProcessor.BlockNotAcceptedException;
+import brs.services.BlockService;
+import brs.util.DownloadCacheImpl;
+import brs.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Verification stage of the block import. While the importer applies and commits block N,
+ * the PoC and transaction signature checks of the next cached blocks run on a separate pool.
+ * At most {@code depth} verifications are in flight, the download cache limit bounds the
+ * number of blocks waiting in front of this stage. Blocks announced by peers are verified as
+ * soon as they arrive.
+ */
+final class BlockVerificationPipeline {
+
+  private static final Logger logger = LoggerFactory.getLogger(BlockVerificationPipeline.class);
+
+  private final BlockService blockService;
+  private final DownloadCacheImpl downloadCache;
+  private final int depth;
+  private final ExecutorService verificationService;
+  // peers only get a block announced that follows the last cached block, so one thread keeps up,
+  // the queue bounds what announcing peers can make us verify
+  private static final int ANNOUNCED_BLOCK_QUEUE_SIZE = 16;
+  private final ThreadPoolExecutor announcedBlockService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(ANNOUNCED_BLOCK_QUEUE_SIZE));
+  private final Map<Long, Future<?>> pendingVerifications = new ConcurrentHashMap<>();
+
+  BlockVerificationPipeline(BlockService blockService, DownloadCacheImpl downloadCache, int depth, int threads) {
+    this.blockService = blockService;
+    this.downloadCache = downloadCache;
+    this.depth = depth;
+    this.verificationService = depth > 0 ? Executors.newFixedThreadPool(Math.max(threads, 1)) : null;
+  }
+
+  /**
+   * Schedules the verification of the blocks following {@code lastBlockId} in the download cache.
+   */
+  void fill(long lastBlockId) {
+    if (verificationService == null) {
+      return;
+    }
+    // finished verifications left their result on the block itself, see await
+    pendingVerifications.values().removeIf(Future::isDone);
+    Block block = downloadCache.getNextBlock(lastBlockId);
+    for (int i = 0; block != null && i < depth && pendingVerifications.size() < depth; i++) {
+      if (!block.isVerified()) {
+        submit(block, verificationService);
+      }
+      block = downloadCache.getNextBlock(block.getId());
+    }
+  }
+
+  /**
+   * Starts verifying a block announced by a peer as soon as it is in the download cache,
+   * instead of when the importer gets to it.
+   */
+  void verifyAnnounced(Block block) {
+    if (!block.isVerified()) {
+      submit(block, announcedBlockService);
+    }
+  }
+
+  private void submit(Block block, ExecutorService executor) {
+    try {
+      pendingVerifications.computeIfAbsent(block.getId(), id -> {
+        // claim the block so the PoC verification threads leave it alone
+        downloadCache.removeUnverified(id);
+        return executor.submit(() -> {
+          blockService.preVerify(block);
+          return null;
+        });
+      });
+    } catch (RejectedExecutionException e) {
+      // await verifies it when the importer gets to it
+      logger.debug("Too many blocks waiting for verification, block {} is verified on import", block.getStringId());
+    }
+  }
+
+  /**
+   * Waits until {@code block} has been verified, verifying it in the calling thread if
+   * it was never scheduled.
+   */
+  void await(Block block) throws BlockNotAcceptedException, InterruptedException {
+    Future<?> verification = pendingVerifications.remove(block.getId());
+    if (verification != null) {
+      try {
+        verification.get();
+      } catch (CancellationException e) {
+        logger.debug("Verification of block {} was cancelled", block.getStringId());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof BlockNotAcceptedException) {
+          throw (BlockNotAcceptedException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        }
+        logger.info("Error verifying block {}", block.getStringId(), cause);
+      }
+    }
+    if (!block.isVerified()) {
+      downloadCache.removeUnverified(block.getId());
+      blockService.preVerify(block);
+      logger.debug("block was not preverified");
+    }
+  }
+
+  /**
+   * Drops all scheduled verifications, e.g. after the download cache has been reset.
+   */
+  void reset() {
+    pendingVerifications.values().forEach(verification -> verification.cancel(true));
+    pendingVerifications.clear();
+  }
+
+  void shutdown(ThreadPool threadPool) {
+    reset();
+    if (verificationService != null) {
+      threadPool.shutdownExecutor(verificationService);
+    }
+    threadPool.shutdownExecutor(announcedBlockService);
+  }
+}
@@ -15,11 +15,13 @@ import brs.db.store.Stores;
 import brs.fluxcapacitor.FluxValues;
 import brs.peer.Peer;
 import brs.peer.Peers;
+import brs.peer.SegmentedBlockDownloader;
 import brs.props.PropertyService;
 import brs.props.Props;
 import brs.services.*;
 import brs.statistics.StatisticsManagerImpl;
 import brs.transactionduplicates.TransactionDuplicatesCheckerImpl;
+import brs.unconfirmedtransactions.TouchedKeys;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
 import brs.util.*;
 import com.google.gson.JsonArray;
@@ -32,6 +34,7 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.MessageDigest;
+import java.sql.Savepoint;
 import java.util.*;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +42,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
@@ -59,6 +63,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
   private final TimeService timeService;
   private final TransactionService transactionService;
   private final TransactionProcessorImpl transactionProcessor;
+  private final Lock unconfirmedTransactionsLock;
+  private final BulkSyncGroup bulkSyncGroup;
+  // what changed since the unconfirmed transactions were last revalidated
+  private volatile TouchedKeys touchedKeys = new TouchedKeys();
+  private final PreCheckedTransactions preCheckedTransactions = new PreCheckedTransactions();
   private final EconomicClustering economicClustering;
   private final BlockchainStore blockchainStore;
   private final BlockDb blockDb;
@@ -69,6 +78,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
   private final Generator generator;
   private final DBCacheManagerImpl dbCacheManager;
   private final IndirectIncomingService indirectIncomingService;
+  private final SegmentedBlockDownloader segmentedBlockDownloader;
+  private final BlockVerificationPipeline verificationPipeline;
+  private final ThreadPool threadPool;
 
   private static final int MAX_TIMESTAMP_DIFFERENCE = 15;
   private boolean oclVerify;
@@ -77,6 +89,8 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
   private final Semaphore gpuUsage = new Semaphore(2);
 
   private final boolean trimDerivedTables;
+  private final int bulkSyncBlocks;
+  private final int bulkSyncMinAge;
   private final AtomicInteger lastTrimHeight = new AtomicInteger();
 
   private final Listeners<Block, Event> blockListeners = new Listeners<>();
@@ -98,14 +112,24 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     return oclVerify;
   }
 
+  /**
+   * Stops the download and verification threads, call it once the background jobs using them are stopped.
+   */
+  public void shutdown() {
+    segmentedBlockDownloader.shutdown(threadPool);
+    verificationPipeline.shutdown(threadPool);
+  }
+
   public BlockchainProcessorImpl(ThreadPool threadPool, BlockService blockService, TransactionProcessorImpl transactionProcessor, BlockchainImpl blockchain,
                                  PropertyService propertyService,
                                  SubscriptionService subscriptionService, TimeService timeService, DerivedTableManager derivedTableManager,
                                  BlockDb blockDb, TransactionDb transactionDb, EconomicClustering economicClustering, BlockchainStore blockchainStore, Stores stores, EscrowService escrowService,
                                  TransactionService transactionService, DownloadCacheImpl downloadCache, Generator generator, StatisticsManagerImpl statisticsManager, DBCacheManagerImpl dbCacheManager,
                                  AccountService accountService, IndirectIncomingService indirectIncomingService) {
+    this.threadPool = threadPool;
     this.blockService = blockService;
     this.transactionProcessor = transactionProcessor;
+    this.unconfirmedTransactionsLock = transactionProcessor.getUnconfirmedTransactionsLock();
     this.timeService = timeService;
     this.derivedTableManager = derivedTableManager;
     this.blockDb = blockDb;
@@ -130,6 +154,16 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     oclUnverifiedQueue = propertyService.getInt(Props.GPU_UNVERIFIED_QUEUE);
 
     trimDerivedTables = propertyService.getBoolean(Props.DB_TRIM_DERIVED_TABLES);
+    bulkSyncBlocks = propertyService.getInt(Props.DB_BULK_SYNC_BLOCKS);
+    bulkSyncMinAge = propertyService.getInt(Props.DB_BULK_SYNC_MIN_AGE);
+
+    segmentedBlockDownloader = new SegmentedBlockDownloader(propertyService.getInt(Props.P2P_PARALLEL_DOWNLOAD_PEERS),
+            propertyService.getInt(Props.P2P_PARALLEL_DOWNLOAD_SEGMENT_SIZE));
+
+    int cpuCores = propertyService.getInt(Props.CPU_NUM_CORES);
+    bulkSyncGroup = new BulkSyncGroup(stores, blockchain, this::announcePushedBlock);
+    verificationPipeline = new BlockVerificationPipeline(blockService, downloadCache, propertyService.getInt(Props.BRS_IMPORT_PIPELINE_DEPTH),
+            cpuCores > 0 ? cpuCores : Runtime.getRuntime().availableProcessors());
 
     blockListeners.addListener(block -> {
       if (block.getHeight() % 5000 == 0) {
@@ -144,17 +178,34 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
       }
     }, Event.BLOCK_PUSHED);
 
-    blockListeners.addListener(block -> transactionProcessor.revalidateUnconfirmedTransactions(), Event.BLOCK_PUSHED);
+    // balances also change outside of the block's transactions, e.g. by ATs, subscriptions and order matching
+    Listener<Account> touchAccount = account -> touchedKeys.addAccount(account.getId());
+    accountService.addListener(touchAccount, Account.Event.BALANCE);
+    accountService.addListener(touchAccount, Account.Event.UNCONFIRMED_BALANCE);
+    accountService.addListener(touchAccount, Account.Event.ASSET_BALANCE);
+    accountService.addListener(touchAccount, Account.Event.UNCONFIRMED_ASSET_BALANCE);
+    blockListeners.addListener(block -> revalidateUnconfirmedTransactions(), Event.BLOCK_PUSHED);
 
     if (trimDerivedTables) {
+      DerivedTableTrimmer trimmer = propertyService.getBoolean(Props.DB_TRIM_IN_BACKGROUND)
+          ? new DerivedTableTrimmer(derivedTableManager, stores, isScanning::get,
+              Arrays.asList(bulkSyncGroup.getLock(), unconfirmedTransactionsLock), propertyService.getInt(Props.DB_TRIM_MAX_MILLIS_PER_RUN))
+          : null;
       blockListeners.addListener(block -> {
         if (block.getHeight() % 1440 == 0) {
           lastTrimHeight.set(Math.max(block.getHeight() - Constants.MAX_ROLLBACK, 0));
           if (lastTrimHeight.get() > 0) {
-            this.derivedTableManager.getDerivedTables().forEach(table -> table.trim(lastTrimHeight.get()));
+            if (trimmer != null) {
+              trimmer.requestTrim(lastTrimHeight.get());
+            } else {
+              this.derivedTableManager.getDerivedTables().forEach(table -> table.trim(lastTrimHeight.get()));
+            }
           }
         }
       }, Event.AFTER_BLOCK_APPLY);
+      if (trimmer != null) {
+        threadPool.scheduleThread("TrimDerivedTables", trimmer, 1);
+      }
     }
 
     addGenesisBlock();
@@ -257,12 +308,6 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 }
               }
 
-              JsonArray nextBlocks = getNextBlocks(peer, commonBlockId);
-              if (nextBlocks == null || nextBlocks.size() == 0) {
-                logger.debug("Peer did not feed us any blocks");
-                return;
-              }
-
               // download blocks from peer
               Block lastBlock = downloadCache.getBlock(commonBlockId);
               if (lastBlock == null) {
@@ -270,57 +315,83 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 return;
               }
 
+              // when we are far behind, fetch the following height ranges from several peers at once
+              List<SegmentedBlockDownloader.Segment> segments;
+              if (saveInCache && segmentedBlockDownloader.isEnabled()
+                      && lastBlockchainFeederHeight.get() - lastBlock.getHeight() > segmentedBlockDownloader.getSegmentSize()) {
+                segments = segmentedBlockDownloader.download(peer, lastBlock.getHeight(), lastBlockchainFeederHeight.get());
+              } else {
+                SegmentedBlockDownloader.Segment nextBlocks = segmentedBlockDownloader.getNextBlocks(peer, commonBlockId, lastBlock.getHeight());
+                segments = nextBlocks == null ? Collections.emptyList() : Collections.singletonList(nextBlocks);
+              }
+              if (segments.isEmpty() || segments.get(0).getBlockCount() <= 0) {
+                logger.debug("Peer did not feed us any blocks");
+                return;
+              }
+
               // loop blocks and make sure they fit in chain
               Block block;
               JsonObject blockData;
 
-              for (JsonElement o : nextBlocks) {
-                int height = lastBlock.getHeight() + 1;
-                blockData = JSON.getAsJsonObject(o);
-                try {
-                  block = Block.parseBlock(blockData, height);
-                  // Make sure it maps back to chain
-                  if (lastBlock.getId() != block.getPreviousBlockId()) {
-                    logger.debug("Discarding downloaded data. Last downloaded blocks is rubbish");
-                    logger.debug("DB blockID: {} DB blockheight: {} Downloaded previd: {}", lastBlock.getId(), lastBlock.getHeight(), block.getPreviousBlockId());
-                    return;
-                  }
-                  // set height and cumulative difficulty to block
-                  block.setHeight(height);
-                  block.setPeer(peer);
-                  block.setByteLength(JSON.toJsonString(blockData).length());
-                  blockService.calculateBaseTarget(block, lastBlock);
-                  if (saveInCache) {
-                    if (downloadCache.getLastBlockId() == block.getPreviousBlockId()) { //still maps back? we might have got announced/forged blocks
-                      if (!downloadCache.addBlock(block)) {
-                        //we stop the loop since cahce has been locked
-                        return;
+              for (SegmentedBlockDownloader.Segment segment : segments) {
+                Peer segmentPeer = segment.getPeer();
+                ByteBuffer binaryFrame = segment.getBinaryFrame() != null ? ByteBuffer.wrap(segment.getBinaryFrame()) : null;
+                int blockCount = binaryFrame != null ? binaryFrame.getInt() : segment.getBlocks().size();
+                for (int i = 0; i < blockCount; i++) {
+                  int height = lastBlock.getHeight() + 1;
+                  try {
+                    if (binaryFrame != null) {
+                      block = Block.parseBlock(binaryFrame, height);
+                    } else {
+                      blockData = JSON.getAsJsonObject(segment.getBlocks().get(i));
+                      block = Block.parseBlock(blockData, height);
+                    }
+                    // Make sure it maps back to chain
+                    if (lastBlock.getId() != block.getPreviousBlockId()) {
+                      logger.debug("Discarding downloaded data. Last downloaded blocks is rubbish");
+                      logger.debug("DB blockID: {} DB blockheight: {} Downloaded previd: {}", lastBlock.getId(), lastBlock.getHeight(), block.getPreviousBlockId());
+                      if (segmentPeer != peer) {
+                        // peer is probably on another chain, don't ask it for segments for a while
+                        segmentedBlockDownloader.evict(segmentPeer);
                       }
-                      if (logger.isDebugEnabled()) {
-                          logger.debug("Added from download: Id: {} Height: {}", block.getId(), block.getHeight());
+                      return;
+                    }
+                    // set height and cumulative difficulty to block
+                    block.setHeight(height);
+                    block.setPeer(segmentPeer);
+                    blockService.calculateBaseTarget(block, lastBlock);
+                    if (saveInCache) {
+                      if (downloadCache.getLastBlockId() == block.getPreviousBlockId()) { //still maps back? we might have got announced/forged blocks
+                        if (!downloadCache.addBlock(block)) {
+                          //we stop the loop since cahce has been locked
+                          return;
+                        }
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Added from download: Id: {} Height: {}", block.getId(), block.getHeight());
+                        }
                       }
+                    } else {
+                      downloadCache.addForkBlock(block);
                     }
-                  } else {
-                    downloadCache.addForkBlock(block);
+                    lastBlock = block;
+                  } catch (BlockOutOfOrderException e) {
+                    logger.info(e.toString() + " - autoflushing cache to get rid of it", e);
+                    downloadCache.resetCache();
+                    return;
+                  } catch (RuntimeException | AtmException.ValidationException e) {
+                    logger.info("Failed to parse block: {}" + e.toString(), e);
+                    logger.info("Failed to parse block trace: {}", Arrays.toString(e.getStackTrace()));
+                    segmentPeer.blacklist(e, "pulled invalid data using getCumulativeDifficulty");
+                    return;
+                  } catch (Exception e) {
+                    logger.warn("Unhandled exception {}" + e.toString(), e);
+                    logger.warn("Unhandled exception trace: {}", Arrays.toString(e.getStackTrace()));
                   }
-                  lastBlock = block;
-                } catch (BlockOutOfOrderException e) {
-                  logger.info(e.toString() + " - autoflushing cache to get rid of it", e);
-                  downloadCache.resetCache();
-                  return;
-                } catch (RuntimeException | AtmException.ValidationException e) {
-                  logger.info("Failed to parse block: {}" + e.toString(), e);
-                  logger.info("Failed to parse block trace: {}", Arrays.toString(e.getStackTrace()));
-                  peer.blacklist(e, "pulled invalid data using getCumulativeDifficulty");
-                  return;
-                } catch (Exception e) {
-                  logger.warn("Unhandled exception {}" + e.toString(), e);
-                  logger.warn("Unhandled exception trace: {}", Arrays.toString(e.getStackTrace()));
-                }
-                //executor shutdown?
-                if (Thread.currentThread().isInterrupted())
-                  return;
-              } // end block loop
+                  //executor shutdown?
+                  if (Thread.currentThread().isInterrupted())
+                    return;
+                } // end block loop
+              } // end segment loop
 
               if (logger.isTraceEnabled()) {
                 logger.trace("Unverified blocks: {}", downloadCache.getUnverifiedSize());
@@ -437,49 +508,24 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         throw new InterruptedException("interrupted");
       }
 
-      private JsonArray getNextBlocks(Peer peer, long curBlockId) {
-
-        JsonObject request = new JsonObject();
-        request.addProperty("requestType", "getNextBlocks");
-        request.addProperty("blockId", Convert.toUnsignedLong(curBlockId));
-        if (logger.isDebugEnabled()) {
-          logger.debug("Getting next Blocks after {} from {}", curBlockId, peer.getPeerAddress());
-        }
-        JsonObject response = peer.send(JSON.prepareRequest(request));
-        if (response == null) {
-          return null;
-        }
-
-        JsonArray nextBlocks = JSON.getAsJsonArray(response.get("nextBlocks"));
-        if (nextBlocks == null) {
-          return null;
-        }
-        // prevent overloading with blocks
-        if (nextBlocks.size() > 1440) {
-          peer.blacklist("obsolete or rogue peer sends too many nextBlocks");
-          return null;
-        }
-        logger.debug("Got {} blocks after {} from {}", nextBlocks.size(), curBlockId, peer.getPeerAddress());
-        return nextBlocks;
-
-      }
-
       private void processFork(Peer peer, final List<Block> forkBlocks, long forkBlockId) {
-        logger.warn("A fork is detected. Waiting for cache to be processed.");
+        logger.warn("A fork is detected.");
         downloadCache.lockCache(); //dont let anything add to cache!
-        while (!Thread.currentThread().isInterrupted() && ThreadPool.running.get()) {
-          if (downloadCache.size() == 0) {
-            break;
-          }
-          try {
-            Thread.sleep(1000);
-          } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-          }
-        }
+        bulkSyncGroup.getLock().lock();
         synchronized (BlockchainProcessorImpl.this.downloadCache) {
-          synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
-            logger.warn("Cache is now processed. Starting to process fork.");
+          unconfirmedTransactionsLock.lock();
+          try {
+            // the importer checks under this lock that its block is still in the cache, see importBlock
+            verificationPipeline.reset();
+            if (downloadCache.replaceBlocksAfter(forkBlockId, forkBlocks)) {
+              // the fork starts within the blocks we did not import yet, it just replaces the rest of the cache
+              logger.warn("Fork replaces cached blocks, nothing to pop off.");
+              downloadCache.resetForkBlocks();
+              return;
+            }
+            // the fork starts in the chain, none of the cached blocks are of use anymore
+            downloadCache.resetCache();
+            logger.warn("Starting to process fork.");
             Block forkBlock = blockchain.getBlock(forkBlockId);
 
             // we read the current cumulative difficulty
@@ -543,6 +589,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             logger.warn("Forkprocessing complete.");
             downloadCache.resetForkBlocks();
             downloadCache.resetCache(); // Reset and set cached vars to chaindata.
+          } finally {
+            unconfirmedTransactionsLock.unlock();
+            bulkSyncGroup.getLock().unlock();
           }
         }
       }
@@ -554,29 +603,22 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     Runnable blockImporterThread = () -> {
       while (!Thread.interrupted() && ThreadPool.running.get() && downloadCache.size() > 0) {
         try {
-          Block lastBlock = blockchain.getLastBlock();
-          Long lastId = lastBlock.getId();
-          Block currentBlock = downloadCache.getNextBlock(lastId); /* this should fetch first block in cache */
-          if (currentBlock == null || currentBlock.getHeight() != (lastBlock.getHeight() + 1)) {
-            if (logger.isDebugEnabled()) {
-              logger.debug("cache is reset due to orphaned block(s). CacheSize: {}", downloadCache.size());
+          if (isBulkSyncDue()) {
+            if (!importBlockGroup()) {
+              break;
             }
-            downloadCache.resetCache(); //resetting cache because we have blocks that cannot be processed.
+            continue;
+          }
+          Block currentBlock = getNextBlockToImport();
+          if (currentBlock == null) {
             break;
           }
           try {
-            if (!currentBlock.isVerified()) {
-              downloadCache.removeUnverified(currentBlock.getId());
-              blockService.preVerify(currentBlock);
-              logger.debug("block was not preverified");
-            }
-            pushBlock(currentBlock); //pushblock removes the block from cache.
+            importBlock(currentBlock); //pushblock removes the block from cache.
           } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
           } catch (BlockNotAcceptedException e) {
-            logger.error("Block not accepted", e);
-            blacklistClean(currentBlock, e, "found invalid pull/push data during importing the block");
-            autoPopOff(currentBlock.getHeight());
+            handleImportFailure(currentBlock, e);
             break;
           }
         } catch (Exception exception) {
@@ -611,19 +653,14 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             verifyWithOcl = false;
           }
           if (verifyWithOcl) {
-            int poCVersion;
-            int pos = 0;
-            List<Block> blocks = new LinkedList<>();
-            poCVersion = downloadCache.getPoCVersion(downloadCache.getUnverifiedBlockIdFromPos(0));
-            while (!Thread.interrupted() && ThreadPool.running.get()
-                    && (downloadCache.getUnverifiedSize() - 1) > pos
-                    && blocks.size() < OCLPoC.getMaxItems()) {
-              long blockId = downloadCache.getUnverifiedBlockIdFromPos(pos);
-              if (downloadCache.getPoCVersion(blockId) != poCVersion) {
+            List<Block> blocks = new ArrayList<>();
+            List<Block> unverifiedBlocks = downloadCache.getUnverifiedBlocks(Math.min(unVerified - 1, OCLPoC.getMaxItems()));
+            int poCVersion = unverifiedBlocks.isEmpty() ? 1 : downloadCache.getPoCVersion(unverifiedBlocks.get(0).getId());
+            for (Block block : unverifiedBlocks) {
+              if (downloadCache.getPoCVersion(block.getId()) != poCVersion) {
                 break;
               }
-              blocks.add(downloadCache.getBlock(blockId));
-              pos += 1;
+              blocks.add(block);
             }
             try {
               OCLPoC.validatePoC(blocks, poCVersion, blockService);
@@ -640,7 +677,10 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             }
           } else { //verify using java
             try {
-              blockService.preVerify(downloadCache.getFirstUnverifiedBlock());
+              Block block = downloadCache.getFirstUnverifiedBlock();
+              if (block != null) {
+                blockService.preVerify(block);
+              }
             } catch (InterruptedException e) {
               Thread.currentThread().interrupt();
             } catch (BlockNotAcceptedException e) {
@@ -650,12 +690,39 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
       }
     };
+    // one copy per core, each claims its own blocks from the cache and only sleeps when there is nothing left
+    Runnable cpuVerificationWorker = () -> {
+      String worker = Thread.currentThread().getName();
+      while (!Thread.currentThread().isInterrupted() && ThreadPool.running.get()) {
+        Block block = downloadCache.getFirstUnverifiedBlock();
+        if (block == null) {
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          continue;
+        }
+        long start = System.nanoTime();
+        try {
+          blockService.preVerify(block);
+          statisticsManager.blockVerified(worker, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (BlockNotAcceptedException e) {
+          logger.error("Block failed to preverify: ", e);
+        } catch (RuntimeException e) {
+          // the pool doesn't restart a worker that dies, keep it claiming blocks
+          logger.error("Error preverifying block {}", block.getStringId(), e);
+        }
+      }
+    };
     if (propertyService.getBoolean(Props.GPU_ACCELERATION)) {
       logger.debug("Starting preverifier thread in Open CL mode.");
       threadPool.scheduleThread("VerifyPoc", pocVerificationThread, Constants.BLOCK_PROCESS_THREAD_DELAY, TimeUnit.MILLISECONDS);
     } else {
       logger.debug("Starting preverifier thread in CPU mode.");
-      threadPool.scheduleThreadCores(pocVerificationThread, Constants.BLOCK_PROCESS_THREAD_DELAY, TimeUnit.MILLISECONDS);
+      threadPool.scheduleThreadCores(cpuVerificationWorker, Constants.BLOCK_PROCESS_THREAD_DELAY, TimeUnit.MILLISECONDS);
     }
   }
 
@@ -672,12 +739,118 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     logger.debug("Blacklisted peer and cleaned queue");
   }
 
+  /**
+   * @return the block following the last block from the download cache, or null if the cache got reset
+   */
+  private Block getNextBlockToImport() {
+    Block lastBlock = blockchain.getLastBlock();
+    Block currentBlock = downloadCache.getNextBlock(lastBlock.getId()); /* this should fetch first block in cache */
+    if (currentBlock == null || currentBlock.getHeight() != (lastBlock.getHeight() + 1)) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("cache is reset due to orphaned block(s). CacheSize: {}", downloadCache.size());
+      }
+      downloadCache.resetCache(); //resetting cache because we have blocks that cannot be processed.
+      verificationPipeline.reset();
+      return null;
+    }
+    return currentBlock;
+  }
+
+  private void importBlock(Block block) throws BlockNotAcceptedException, InterruptedException {
+    try {
+      verificationPipeline.await(block);
+    } catch (BlockNotAcceptedException e) {
+      if (isNextToImport(block)) {
+        throw e;
+      }
+      return;
+    }
+    // let the following blocks be verified while this one is applied and committed
+    verificationPipeline.fill(block.getId());
+    unconfirmedTransactionsLock.lock();
+    try {
+      if (!isNextToImport(block)) {
+        logger.debug("Block {} was dropped from the cache by a fork switch", block.getStringId());
+        return;
+      }
+      pushBlock(block);
+    } finally {
+      unconfirmedTransactionsLock.unlock();
+    }
+  }
+
+  private boolean isNextToImport(Block block) {
+    return downloadCache.getNextBlock(blockchain.getLastBlock().getId()) == block;
+  }
+
+  private void handleImportFailure(Block block, BlockNotAcceptedException e) {
+    logger.error("Block not accepted", e);
+    verificationPipeline.reset();
+    blacklistClean(block, e, "found invalid pull/push data during importing the block");
+    autoPopOff(block.getHeight());
+  }
+
+  private boolean isBulkSyncDue() {
+    return bulkSyncBlocks > 1 && blockchain.getLastBlock().getTimestamp() < timeService.getEpochTime() - bulkSyncMinAge;
+  }
+
+  /**
+   * Imports up to {@link #bulkSyncBlocks} blocks in a single database transaction, so the database
+   * syncs to disk once per group instead of once per block. pushBlock sets a savepoint per block,
+   * a block that is not accepted only loses its own changes and the group before it is committed.
+   * Listeners and peers only learn about the blocks of the group once it is committed, see {@link BulkSyncGroup}.
+   * @return false if the importer should stop
+   */
+  private boolean importBlockGroup() {
+    Block currentBlock = null;
+    BlockNotAcceptedException failure = null;
+    boolean proceed = true;
+    // the other threads changing the chain wait for the group, importBlock only takes the
+    // unconfirmed transactions lock for each push
+    bulkSyncGroup.begin();
+    try {
+      for (int i = 0; proceed && i < bulkSyncBlocks && !Thread.currentThread().isInterrupted() && downloadCache.size() > 0; i++) {
+        currentBlock = getNextBlockToImport();
+        if (currentBlock == null) {
+          proceed = false;
+        } else {
+          try {
+            importBlock(currentBlock);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (BlockNotAcceptedException e) {
+            failure = e;
+            proceed = false;
+          }
+        }
+      }
+      bulkSyncGroup.commit();
+    } catch (RuntimeException e) {
+      // the whole group is lost, continue from the last block before it
+      bulkSyncGroup.rollback();
+      downloadCache.resetCache();
+      verificationPipeline.reset();
+      throw e;
+    } finally {
+      // announces the blocks of the group if it was committed
+      bulkSyncGroup.end();
+    }
+    if (failure != null) {
+      // outside of the group transaction, auto pop off needs its own
+      handleImportFailure(currentBlock, failure);
+    }
+    return proceed;
+  }
+
   private void autoPopOff(int height) {
     if (!autoPopOffEnabled) {
       logger.warn("Not automatically popping off as it is disabled via properties. If your node becomes stuck you will need to manually pop off.");
       return;
     }
-    synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
+    // popOffTo takes the bulk sync group lock, it has to come first
+    bulkSyncGroup.getLock().lock();
+    unconfirmedTransactionsLock.lock();
+    try {
       logger.warn("Auto popping off as failed to push block");
       if (height != autoPopOffLastStuckHeight) {
         autoPopOffLastStuckHeight = height;
@@ -690,6 +863,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         popOffTo(blockchain.getHeight() - autoPopOffNumberOfBlocks);
       }
       autoPopOffNumberOfBlocks++;
+    } finally {
+      unconfirmedTransactionsLock.unlock();
+      bulkSyncGroup.getLock().unlock();
     }
   }
 
@@ -733,9 +909,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     Block chainblock = downloadCache.getLastBlock();
     if (chainblock.getId() == newBlock.getPreviousBlockId()) {
       newBlock.setHeight(chainblock.getHeight() + 1);
-      newBlock.setByteLength(newBlock.toString().length());
       blockService.calculateBaseTarget(newBlock, chainblock);
-      downloadCache.addBlock(newBlock);
+      if (downloadCache.addBlock(newBlock)) {
+        // PoC and signatures are checked right away, pushBlock is left with the chain state checks
+        verificationPipeline.verifyAnnounced(newBlock);
+      }
       logger.debug("Peer {} added block from Announce: Id: {} Height: {}", peer.getPeerAddress(), newBlock.getId(), newBlock.getHeight());
     } else {
       logger.debug("Peer {} sent us block: {} which is not the follow-up block for {}", peer.getPeerAddress(), newBlock.getPreviousBlockId(), chainblock.getId());
@@ -792,8 +970,15 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
   }
 
   private void pushBlock(final Block block) throws BlockNotAcceptedException {
-    synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
-      stores.beginTransaction();
+    unconfirmedTransactionsLock.lock();
+    try {
+      // inside a bulk sync group only this block is rolled back on failure, see importBlockGroup
+      Savepoint savepoint = null;
+      if (stores.isInTransaction()) {
+        savepoint = stores.setSavepoint();
+      } else {
+        stores.beginTransaction();
+      }
       int curTime = timeService.getEpochTime();
 
       Block previousLastBlock = null;
@@ -932,30 +1117,59 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         blockService.setPrevious(block, previousLastBlock);
         blockListeners.notify(block, Event.BEFORE_BLOCK_ACCEPT);
         transactionProcessor.removeForgedTransactions(block.getTransactions());
-        transactionProcessor.requeueAllUnconfirmedTransactions();
         accountService.flushAccountTable();
         addBlock(block);
         downloadCache.removeBlock(block); // We make sure downloadCache do not have this block anymore.
         accept(block, remainingAmount, remainingFee);
+        // flushed per block even in a group, the batches must not mix with the next block's savepoint
         derivedTableManager.getDerivedTables().forEach(DerivedTable::finish);
-        stores.commitTransaction();
+        if (savepoint != null) {
+          stores.releaseSavepoint(savepoint);
+        } else {
+          stores.commitTransaction();
+        }
       } catch (BlockNotAcceptedException | ArithmeticException e) {
-        stores.rollbackTransaction();
+        rollback(savepoint);
         blockchain.setLastBlock(previousLastBlock);
         downloadCache.resetCache();
         throw e;
+      } catch (RuntimeException e) {
+        if (savepoint != null) {
+          // don't let the group commit a half applied block
+          rollback(savepoint);
+          if (previousLastBlock != null) {
+            blockchain.setLastBlock(previousLastBlock);
+          }
+        }
+        throw e;
       } finally {
-        stores.endTransaction();
-      }
-      logger.debug("Successfully pushed {} (height {})", block.getId(), block.getHeight());
-      statisticsManager.blockAdded();
-      blockListeners.notify(block, Event.BLOCK_PUSHED);
-      if (block.getTimestamp() >= timeService.getEpochTime() - MAX_TIMESTAMP_DIFFERENCE) {
-        Peers.sendToSomePeers(block);
-      }
-      if (block.getHeight() >= autoPopOffLastStuckHeight) {
-        autoPopOffNumberOfBlocks = 0;
+        if (savepoint == null) {
+          stores.endTransaction();
+        }
       }
+      bulkSyncGroup.pushed(block);
+    } finally {
+      unconfirmedTransactionsLock.unlock();
+    }
+  }
+
+  private void announcePushedBlock(Block block) {
+    logger.debug("Successfully pushed {} (height {})", block.getId(), block.getHeight());
+    statisticsManager.blockAdded();
+    blockListeners.notify(block, Event.BLOCK_PUSHED);
+    if (block.getTimestamp() >= timeService.getEpochTime() - MAX_TIMESTAMP_DIFFERENCE) {
+      Peers.sendToSomePeers(block);
+    }
+    if (block.getHeight() >= autoPopOffLastStuckHeight) {
+      autoPopOffNumberOfBlocks = 0;
+    }
+  }
+
+  private void rollback(Savepoint savepoint) {
+    if (savepoint != null) {
+      stores.rollbackToSavepoint(savepoint);
+    } else {
+      stores.rollbackTransaction();
     }
   }
 
@@ -993,7 +1207,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
       throw new BlockNotAcceptedException("Calculated remaining fee doesn't add up for block " + block.getHeight());
     }
     blockListeners.notify(block, Event.BEFORE_BLOCK_APPLY);
-    blockService.apply(block);
+    blockService.apply(block, touchedKeys);
     subscriptionService.applyConfirmed(block, blockchain.getHeight());
     if (escrowService.isEnabled()) {
       escrowService.updateOnBlock(block, blockchain.getHeight());
@@ -1015,32 +1229,53 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
       return Collections.emptyList();
     }
     List<Block> poppedOffBlocks = new ArrayList<>();
-    synchronized (downloadCache) {
-      synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
+    // never pop off the uncommitted blocks of a bulk sync group
+    bulkSyncGroup.getLock().lock();
+    try {
+      synchronized (downloadCache) {
+        unconfirmedTransactionsLock.lock();
         try {
-          stores.beginTransaction();
-          Block block = blockchain.getLastBlock();
-          logger.info("Rollback from {} to {}", block.getHeight(), commonBlock.getHeight());
-          while (block.getId() != commonBlock.getId() && block.getId() != Genesis.GENESIS_BLOCK_ID) {
-            poppedOffBlocks.add(block);
-            block = popLastBlock();
+          try {
+            stores.beginTransaction();
+            Block block = blockchain.getLastBlock();
+            logger.info("Rollback from {} to {}", block.getHeight(), commonBlock.getHeight());
+            while (block.getId() != commonBlock.getId() && block.getId() != Genesis.GENESIS_BLOCK_ID) {
+              poppedOffBlocks.add(block);
+              block = popLastBlock();
+            }
+            derivedTableManager.getDerivedTables().forEach(table -> table.rollback(commonBlock.getHeight()));
+            dbCacheManager.flushCache();
+            stores.commitTransaction();
+            downloadCache.resetCache();
+          } catch (RuntimeException e) {
+            stores.rollbackTransaction();
+            logger.debug("Error popping off to {}", commonBlock.getHeight(), e);
+            throw e;
+          } finally {
+            stores.endTransaction();
           }
-          derivedTableManager.getDerivedTables().forEach(table -> table.rollback(commonBlock.getHeight()));
-          dbCacheManager.flushCache();
-          stores.commitTransaction();
-          downloadCache.resetCache();
-        } catch (RuntimeException e) {
-          stores.rollbackTransaction();
-          logger.debug("Error popping off to {}", commonBlock.getHeight(), e);
-          throw e;
         } finally {
-          stores.endTransaction();
+          unconfirmedTransactionsLock.unlock();
+        }
+        if (!poppedOffBlocks.isEmpty()) {
+          // rolling back the derived tables changes balances without account events
+          touchedKeys.touchAll();
+          revalidateUnconfirmedTransactions();
         }
       }
+    } finally {
+      bulkSyncGroup.getLock().unlock();
     }
     return poppedOffBlocks;
   }
 
+  private void revalidateUnconfirmedTransactions() {
+    TouchedKeys touched = touchedKeys;
+    touchedKeys = new TouchedKeys();
+    preCheckedTransactions.forget(touched);
+    transactionProcessor.revalidateUnconfirmedTransactions(touched);
+  }
+
   private Block popLastBlock() {
     Block block = blockchain.getLastBlock();
     if (block.getId() == Genesis.GENESIS_BLOCK_ID) {
@@ -1058,9 +1293,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     return 3;
   }
 
-  private boolean preCheckUnconfirmedTransaction(TransactionDuplicatesCheckerImpl transactionDuplicatesChecker, UnconfirmedTransactionStore unconfirmedTransactionStore, Transaction transaction) {
+  private boolean preCheckUnconfirmedTransaction(UnconfirmedTransactionStore unconfirmedTransactionStore, Transaction transaction) {
+    if (Atm.getFluxCapacitor().getValue(FluxValues.AUTOMATED_TRANSACTION_BLOCK) && !economicClustering.verifyFork(transaction)) {
+      return false;
+    }
     boolean ok = hasAllReferencedTransactions(transaction, transaction.getTimestamp(), 0)
-            && !transactionDuplicatesChecker.hasAnyDuplicate(transaction)
             && !transactionDb.hasTransaction(transaction.getId());
     if (!ok) unconfirmedTransactionStore.remove(transaction);
     return ok;
@@ -1068,220 +1305,241 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
   @Override
   public void generateBlock(String secretPhrase, byte[] publicKey, Long nonce) throws BlockNotAcceptedException {
-    synchronized (downloadCache) {
-      downloadCache.lockCache(); //stop all incoming blocks.
-      UnconfirmedTransactionStore unconfirmedTransactionStore = stores.getUnconfirmedTransactionStore();
-      SortedSet<Transaction> orderedBlockTransactions = new TreeSet<>();
+    // don't forge on top of the uncommitted blocks of a bulk sync group
+    bulkSyncGroup.getLock().lock();
+    try {
+      synchronized (downloadCache) {
+        downloadCache.lockCache(); //stop all incoming blocks.
+        UnconfirmedTransactionStore unconfirmedTransactionStore = stores.getUnconfirmedTransactionStore();
+        SortedSet<Transaction> orderedBlockTransactions = new TreeSet<>();
 
-      int blockSize   = Atm.getFluxCapacitor().getValue(FluxValues.MAX_NUMBER_TRANSACTIONS);
-      int payloadSize = Atm.getFluxCapacitor().getValue(FluxValues.MAX_PAYLOAD_LENGTH);
+        int blockSize   = Atm.getFluxCapacitor().getValue(FluxValues.MAX_NUMBER_TRANSACTIONS);
+        int payloadSize = Atm.getFluxCapacitor().getValue(FluxValues.MAX_PAYLOAD_LENGTH);
 
-      long totalAmountNQT = 0;
-      long totalFeeNQT = 0;
+        long totalAmountNQT = 0;
+        long totalFeeNQT = 0;
 
-      final Block previousBlock = blockchain.getLastBlock();
-      final int blockTimestamp = timeService.getEpochTime();
+        final Block previousBlock = blockchain.getLastBlock();
+        final int blockTimestamp = timeService.getEpochTime();
 
-      // this is just an validation. which collects all valid transactions, which fit into the block
-      // finally all stuff is reverted so nothing is written to the db
-      // the block itself with all transactions we found is pushed using pushBlock which calls
-      // accept (so it's going the same way like a received/synced block)
-      try {
-        stores.beginTransaction();
-
-        final TransactionDuplicatesCheckerImpl transactionDuplicatesChecker = new TransactionDuplicatesCheckerImpl();
+        // this is just an validation. which collects all valid transactions, which fit into the block
+        // finally all stuff is reverted so nothing is written to the db
+        // the block itself with all transactions we found is pushed using pushBlock which calls
+        // accept (so it's going the same way like a received/synced block)
+        try {
+          stores.beginTransaction();
 
-        ToLongFunction<Transaction> priorityCalculator = transaction -> {
-          int age = blockTimestamp + 1 - transaction.getTimestamp();
-          if (age < 0) age = 1;
-          return ((long) age) * transaction.getFeeNQT();
-        };
-
-        // Map of slot number -> transaction
-        Map<Long, Transaction> transactionsToBeIncluded;
-        Stream<Transaction> inclusionCandidates = unconfirmedTransactionStore.getAll().stream()
-                .filter(transaction -> // Normal filtering
-                        transaction.getVersion() == transactionProcessor.getTransactionVersion(previousBlock.getHeight())
-                                && transaction.getExpiration() >= blockTimestamp
-                                && transaction.getTimestamp() <= blockTimestamp + MAX_TIMESTAMP_DIFFERENCE
-                                && (
-                                !Atm.getFluxCapacitor().getValue(FluxValues.AUTOMATED_TRANSACTION_BLOCK)
-                                        || economicClustering.verifyFork(transaction)
-                        ))
-                .filter(transaction -> preCheckUnconfirmedTransaction(transactionDuplicatesChecker, unconfirmedTransactionStore, transaction)); // Extra check for transactions that are to be considered
-
-        if (Atm.getFluxCapacitor().getValue(FluxValues.PRE_DYMAXION)) {
-          // In this step we get all unconfirmed transactions and then sort them by slot, followed by priority
-          Map<Long, Map<Long, Transaction>> unconfirmedTransactionsOrderedBySlotThenPriority = new HashMap<>();
-            inclusionCandidates.collect(Collectors.toMap(Function.identity(), priorityCalculator::applyAsLong)).forEach((transaction, priority) -> {
-            long slot = (transaction.getFeeNQT() - (transaction.getFeeNQT() % FEE_QUANT)) / FEE_QUANT;
-            unconfirmedTransactionsOrderedBySlotThenPriority.computeIfAbsent(slot, k -> new HashMap<>());
-            unconfirmedTransactionsOrderedBySlotThenPriority.get(slot).put(priority, transaction);
-          });
-
-          // In this step we sort through each slot and find the highest priority transaction in each.
-          AtomicLong highestSlot = new AtomicLong();
-          unconfirmedTransactionsOrderedBySlotThenPriority.keySet()
-                  .forEach(slot -> {
-                    if (highestSlot.get() < slot) {
-                      highestSlot.set(slot);
+          final TransactionDuplicatesCheckerImpl transactionDuplicatesChecker = new TransactionDuplicatesCheckerImpl();
+
+          ToLongFunction<Transaction> priorityCalculator = transaction -> {
+            int age = blockTimestamp + 1 - transaction.getTimestamp();
+            if (age < 0) age = 1;
+            return ((long) age) * transaction.getFeeNQT();
+          };
+
+          // before EC_CHANGE_BLOCK_1 and the AT fork the checks against the chain also depend on the height
+          final boolean reusePreChecks = previousBlock.getHeight() >= Constants.EC_CHANGE_BLOCK_1
+                  && Atm.getFluxCapacitor().getValue(FluxValues.AUTOMATED_TRANSACTION_BLOCK);
+          final long preCheckGeneration = preCheckedTransactions.getGeneration();
+          final List<Transaction> passedPreChecks = new ArrayList<>();
+
+          // Map of slot number -> transaction
+          Map<Long, Transaction> transactionsToBeIncluded;
+          Stream<Transaction> inclusionCandidates = unconfirmedTransactionStore.getAll().stream()
+                  .filter(transaction -> // Normal filtering
+                          transaction.getVersion() == transactionProcessor.getTransactionVersion(previousBlock.getHeight())
+                                  && transaction.getExpiration() >= blockTimestamp
+                                  && transaction.getTimestamp() <= blockTimestamp + MAX_TIMESTAMP_DIFFERENCE)
+                  // Extra check for transactions that are to be considered
+                  .filter(transaction -> (reusePreChecks && preCheckedTransactions.contains(transaction.getId()))
+                          || preCheckUnconfirmedTransaction(unconfirmedTransactionStore, transaction))
+                  .filter(transaction -> {
+                    if (transactionDuplicatesChecker.hasAnyDuplicate(transaction)) {
+                      unconfirmedTransactionStore.remove(transaction);
+                      return false;
                     }
+                    passedPreChecks.add(transaction);
+                    return true;
                   });
-          List<Long> slotsWithNoTransactions = new ArrayList<>();
-          for (long slot = 1; slot <= highestSlot.get(); slot++) {
-            Map<Long, Transaction> transactions = unconfirmedTransactionsOrderedBySlotThenPriority.get(slot);
-            if (transactions == null || transactions.size() == 0) {
-              slotsWithNoTransactions.add(slot);
-            }
-          }
-          Map<Long, Transaction> unconfirmedTransactionsOrderedBySlot = new HashMap<>();
-          unconfirmedTransactionsOrderedBySlotThenPriority.forEach((slot, transactions) -> {
-            AtomicLong highestPriority = new AtomicLong();
-            transactions.keySet().forEach(priority -> {
-              if (highestPriority.get() < priority) {
-                highestPriority.set(priority);
-              }
+
+          if (Atm.getFluxCapacitor().getValue(FluxValues.PRE_DYMAXION)) {
+            // In this step we get all unconfirmed transactions and then sort them by slot, followed by priority
+            Map<Long, Map<Long, Transaction>> unconfirmedTransactionsOrderedBySlotThenPriority = new HashMap<>();
+              inclusionCandidates.collect(Collectors.toMap(Function.identity(), priorityCalculator::applyAsLong)).forEach((transaction, priority) -> {
+              long slot = (transaction.getFeeNQT() - (transaction.getFeeNQT() % FEE_QUANT)) / FEE_QUANT;
+              unconfirmedTransactionsOrderedBySlotThenPriority.computeIfAbsent(slot, k -> new HashMap<>());
+              unconfirmedTransactionsOrderedBySlotThenPriority.get(slot).put(priority, transaction);
             });
-            unconfirmedTransactionsOrderedBySlot.put(slot, transactions.get(highestPriority.get()));
-            transactions.remove(highestPriority.get()); // This is to help with filling slots with no transactions
-          });
-
-          // If a slot does not have any transactions in it, the next highest priority transaction from the slot above should be used.
-          slotsWithNoTransactions.sort(Comparator.reverseOrder());
-          slotsWithNoTransactions.forEach(emptySlot -> {
-            long slotNumberToTakeFrom = emptySlot;
-            Map<Long, Transaction> slotToTakeFrom = null;
-            while (slotToTakeFrom == null || slotToTakeFrom.size() == 0) {
-              slotNumberToTakeFrom++;
-              if (slotNumberToTakeFrom > highestSlot.get()) return;
-              slotToTakeFrom = unconfirmedTransactionsOrderedBySlotThenPriority.get(slotNumberToTakeFrom);
+
+            // In this step we sort through each slot and find the highest priority transaction in each.
+            AtomicLong highestSlot = new AtomicLong();
+            unconfirmedTransactionsOrderedBySlotThenPriority.keySet()
+                    .forEach(slot -> {
+                      if (highestSlot.get() < slot) {
+                        highestSlot.set(slot);
+                      }
+                    });
+            List<Long> slotsWithNoTransactions = new ArrayList<>();
+            for (long slot = 1; slot <= highestSlot.get(); slot++) {
+              Map<Long, Transaction> transactions = unconfirmedTransactionsOrderedBySlotThenPriority.get(slot);
+              if (transactions == null || transactions.size() == 0) {
+                slotsWithNoTransactions.add(slot);
+              }
             }
-            AtomicLong highestPriority = new AtomicLong();
-            slotToTakeFrom.keySet().forEach(priority -> {
-              if (highestPriority.get() < priority) {
-                highestPriority.set(priority);
+            Map<Long, Transaction> unconfirmedTransactionsOrderedBySlot = new HashMap<>();
+            unconfirmedTransactionsOrderedBySlotThenPriority.forEach((slot, transactions) -> {
+              AtomicLong highestPriority = new AtomicLong();
+              transactions.keySet().forEach(priority -> {
+                if (highestPriority.get() < priority) {
+                  highestPriority.set(priority);
+                }
+              });
+              unconfirmedTransactionsOrderedBySlot.put(slot, transactions.get(highestPriority.get()));
+              transactions.remove(highestPriority.get()); // This is to help with filling slots with no transactions
+            });
+
+            // If a slot does not have any transactions in it, the next highest priority transaction from the slot above should be used.
+            slotsWithNoTransactions.sort(Comparator.reverseOrder());
+            slotsWithNoTransactions.forEach(emptySlot -> {
+              long slotNumberToTakeFrom = emptySlot;
+              Map<Long, Transaction> slotToTakeFrom = null;
+              while (slotToTakeFrom == null || slotToTakeFrom.size() == 0) {
+                slotNumberToTakeFrom++;
+                if (slotNumberToTakeFrom > highestSlot.get()) return;
+                slotToTakeFrom = unconfirmedTransactionsOrderedBySlotThenPriority.get(slotNumberToTakeFrom);
               }
+              AtomicLong highestPriority = new AtomicLong();
+              slotToTakeFrom.keySet().forEach(priority -> {
+                if (highestPriority.get() < priority) {
+                  highestPriority.set(priority);
+                }
+              });
+              unconfirmedTransactionsOrderedBySlot.put(emptySlot, slotToTakeFrom.get(highestPriority.get()));
+              slotToTakeFrom.remove(highestPriority.get());
             });
-            unconfirmedTransactionsOrderedBySlot.put(emptySlot, slotToTakeFrom.get(highestPriority.get()));
-            slotToTakeFrom.remove(highestPriority.get());
-          });
-          transactionsToBeIncluded = unconfirmedTransactionsOrderedBySlot;
-        } else { // Before Pre-Dymaxion HF, just choose highest priority
-          Map<Long, Transaction> transactionsOrderedByPriority = inclusionCandidates.collect(Collectors.toMap(priorityCalculator::applyAsLong, Function.identity()));
-          Map<Long, Transaction> transactionsOrderedBySlot = new HashMap<>();
-          AtomicLong currentSlot = new AtomicLong(1);
-          transactionsOrderedByPriority.keySet()
-                  .stream()
-                  .sorted(Comparator.reverseOrder())
-                  .forEach(priority -> { // This should do highest priority to lowest priority
-                    transactionsOrderedBySlot.put(currentSlot.get(), transactionsOrderedByPriority.get(priority));
-                    currentSlot.incrementAndGet();
-                  });
-          transactionsToBeIncluded = transactionsOrderedBySlot;
-        }
+            transactionsToBeIncluded = unconfirmedTransactionsOrderedBySlot;
+          } else { // Before Pre-Dymaxion HF, just choose highest priority
+            Map<Long, Transaction> transactionsOrderedByPriority = inclusionCandidates.collect(Collectors.toMap(priorityCalculator::applyAsLong, Function.identity()));
+            Map<Long, Transaction> transactionsOrderedBySlot = new HashMap<>();
+            AtomicLong currentSlot = new AtomicLong(1);
+            transactionsOrderedByPriority.keySet()
+                    .stream()
+                    .sorted(Comparator.reverseOrder())
+                    .forEach(priority -> { // This should do highest priority to lowest priority
+                      transactionsOrderedBySlot.put(currentSlot.get(), transactionsOrderedByPriority.get(priority));
+                      currentSlot.incrementAndGet();
+                    });
+            transactionsToBeIncluded = transactionsOrderedBySlot;
+          }
+          if (reusePreChecks) {
+            preCheckedTransactions.set(passedPreChecks, preCheckGeneration);
+          }
 
-        for (Map.Entry<Long, Transaction> entry : transactionsToBeIncluded.entrySet()) {
-          long slot = entry.getKey();
-          Transaction transaction = entry.getValue();
+          for (Map.Entry<Long, Transaction> entry : transactionsToBeIncluded.entrySet()) {
+            long slot = entry.getKey();
+            Transaction transaction = entry.getValue();
 
-          if (blockSize <= 0 || payloadSize <= 0) {
-            break;
-          } else if (transaction.getSize() > payloadSize) {
-            continue;
-          }
+            if (blockSize <= 0 || payloadSize <= 0) {
+              break;
+            } else if (transaction.getSize() > payloadSize) {
+              continue;
+            }
 
-          long slotFee = Atm.getFluxCapacitor().getValue(FluxValues.PRE_DYMAXION) ? slot * FEE_QUANT : ONE_ATM;
-          if (transaction.getFeeNQT() >= slotFee) {
-            if (transactionService.applyUnconfirmed(transaction)) {
-              try {
-                transactionService.validate(transaction);
-                payloadSize -= transaction.getSize();
-                totalAmountNQT += transaction.getAmountNQT();
-                totalFeeNQT += transaction.getFeeNQT();
-                orderedBlockTransactions.add(transaction);
-                blockSize--;
-              } catch (AtmException.NotCurrentlyValidException e) {
-                transactionService.undoUnconfirmed(transaction);
-              } catch (AtmException.ValidationException e) {
+            long slotFee = Atm.getFluxCapacitor().getValue(FluxValues.PRE_DYMAXION) ? slot * FEE_QUANT : ONE_ATM;
+            if (transaction.getFeeNQT() >= slotFee) {
+              if (transactionService.applyUnconfirmed(transaction)) {
+                try {
+                  transactionService.validate(transaction);
+                  payloadSize -= transaction.getSize();
+                  totalAmountNQT += transaction.getAmountNQT();
+                  totalFeeNQT += transaction.getFeeNQT();
+                  orderedBlockTransactions.add(transaction);
+                  blockSize--;
+                } catch (AtmException.NotCurrentlyValidException e) {
+                  transactionService.undoUnconfirmed(transaction);
+                } catch (AtmException.ValidationException e) {
+                  unconfirmedTransactionStore.remove(transaction);
+                  transactionService.undoUnconfirmed(transaction);
+                }
+              } else {
+                // Drop duplicates and transactions that cannot be applied
                 unconfirmedTransactionStore.remove(transaction);
-                transactionService.undoUnconfirmed(transaction);
               }
-            } else {
-              // Drop duplicates and transactions that cannot be applied
-              unconfirmedTransactionStore.remove(transaction);
             }
           }
-        }
 
-        if (subscriptionService.isEnabled()) {
-          subscriptionService.clearRemovals();
-          totalFeeNQT += subscriptionService.calculateFees(blockTimestamp);
+          if (subscriptionService.isEnabled()) {
+            subscriptionService.clearRemovals();
+            totalFeeNQT += subscriptionService.calculateFees(blockTimestamp);
+          }
+        }
+        catch (Exception e) {
+          stores.rollbackTransaction();
+          throw e;
+        }
+        finally {
+          stores.rollbackTransaction();
+          stores.endTransaction();
         }
-      }
-      catch (Exception e) {
-        stores.rollbackTransaction();
-        throw e;
-      }
-      finally {
-        stores.rollbackTransaction();
-        stores.endTransaction();
-      }
 
-      // ATs for block
-      AT.clearPendingFees();
-      AT.clearPendingTransactions();
-      AtBlock atBlock = AtController.getCurrentBlockATs(payloadSize, previousBlock.getHeight() + 1);
-      byte[] byteATs = atBlock.getBytesForBlock();
-
-      // digesting AT Bytes
-      if (byteATs != null) {
-        payloadSize    -= byteATs.length;
-        totalFeeNQT    += atBlock.getTotalFees();
-        totalAmountNQT += atBlock.getTotalAmount();
-      }
+        // ATs for block
+        AT.clearPendingFees();
+        AT.clearPendingTransactions();
+        AtBlock atBlock = AtController.getCurrentBlockATs(payloadSize, previousBlock.getHeight() + 1);
+        byte[] byteATs = atBlock.getBytesForBlock();
+
+        // digesting AT Bytes
+        if (byteATs != null) {
+          payloadSize    -= byteATs.length;
+          totalFeeNQT    += atBlock.getTotalFees();
+          totalAmountNQT += atBlock.getTotalAmount();
+        }
 
-      // ATs for block
+        // ATs for block
 
-      MessageDigest digest = Crypto.sha256();
-      orderedBlockTransactions.forEach(transaction -> digest.update(transaction.getBytes()));
-      byte[] payloadHash = digest.digest();
-      byte[] generationSignature = generator.calculateGenerationSignature(
-          previousBlock.getGenerationSignature(), previousBlock.getGeneratorId());
-      Block block;
-      byte[] previousBlockHash = Crypto.sha256().digest(previousBlock.getBytes());
-      try {
-        block = new Block(getBlockVersion(), blockTimestamp,
-            previousBlock.getId(), totalAmountNQT, totalFeeNQT, Atm.getFluxCapacitor().getValue(FluxValues.MAX_PAYLOAD_LENGTH) - payloadSize, payloadHash, publicKey,
-            generationSignature, null, previousBlockHash, new ArrayList<>(orderedBlockTransactions), nonce,
-            byteATs, previousBlock.getHeight());
-      } catch (AtmException.ValidationException e) {
-        // shouldn't happen because all transactions are already validated
-        logger.info("Error generating block", e);
-        return;
-      }
-      block.sign(secretPhrase);
-      blockService.setPrevious(block, previousBlock);
-      try {
-        blockService.preVerify(block);
-        pushBlock(block);
-        blockListeners.notify(block, Event.BLOCK_GENERATED);
-        if (logger.isDebugEnabled()) {
-            logger.debug("Account {} generated block {} at height {}", Convert.toUnsignedLong(block.getGeneratorId()), block.getStringId(), block.getHeight());
+        MessageDigest digest = Crypto.sha256();
+        orderedBlockTransactions.forEach(transaction -> digest.update(transaction.getBytes()));
+        byte[] payloadHash = digest.digest();
+        byte[] generationSignature = generator.calculateGenerationSignature(
+            previousBlock.getGenerationSignature(), previousBlock.getGeneratorId());
+        Block block;
+        byte[] previousBlockHash = Crypto.sha256().digest(previousBlock.getBytes());
+        try {
+          block = new Block(getBlockVersion(), blockTimestamp,
+              previousBlock.getId(), totalAmountNQT, totalFeeNQT, Atm.getFluxCapacitor().getValue(FluxValues.MAX_PAYLOAD_LENGTH) - payloadSize, payloadHash, publicKey,
+              generationSignature, null, previousBlockHash, new ArrayList<>(orderedBlockTransactions), nonce,
+              byteATs, previousBlock.getHeight());
+        } catch (AtmException.ValidationException e) {
+          // shouldn't happen because all transactions are already validated
+          logger.info("Error generating block", e);
+          return;
         }
-        downloadCache.resetCache();
-      } catch ( InterruptedException e ) {
-        Thread.currentThread().interrupt();
-      } catch (TransactionNotAcceptedException e) {
-        logger.debug("Generate block failed: {}", e.getMessage());
-        Transaction transaction = e.getTransaction();
-        logger.debug("Removing invalid transaction: {}", transaction.getStringId());
-        unconfirmedTransactionStore.remove(transaction);
-        throw e;
-      } catch (BlockNotAcceptedException e) {
-        logger.debug("Generate block failed: {}", e.getMessage());
-        throw e;
-      }
-    } //end synchronized cache
+        block.sign(secretPhrase);
+        blockService.setPrevious(block, previousBlock);
+        try {
+          blockService.preVerify(block);
+          pushBlock(block);
+          blockListeners.notify(block, Event.BLOCK_GENERATED);
+          if (logger.isDebugEnabled()) {
+              logger.debug("Account {} generated block {} at height {}", Convert.toUnsignedLong(block.getGeneratorId()), block.getStringId(), block.getHeight());
+          }
+          downloadCache.resetCache();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        } catch (TransactionNotAcceptedException e) {
+          logger.debug("Generate block failed: {}", e.getMessage());
+          Transaction transaction = e.getTransaction();
+          logger.debug("Removing invalid transaction: {}", transaction.getStringId());
+          unconfirmedTransactionStore.remove(transaction);
+          throw e;
+        } catch (BlockNotAcceptedException e) {
+          logger.debug("Generate block failed: {}", e.getMessage());
+          throw e;
+        }
+      } //end synchronized cache
+    } finally {
+      bulkSyncGroup.getLock().unlock();
+    }
   }
 
   private boolean hasAllReferencedTransactions(Transaction transaction, int timestamp, int count) {
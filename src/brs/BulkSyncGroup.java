@@ -0,0 +1,94 @@
+package brs;
+
+import brs.db.store.Stores;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The database transaction of a group of blocks imported while catching up. Blocks pushed inside the
+ * group are only announced to the listeners and peers once the group is committed. If the group is
+ * rolled back, the last block goes back to the one before the group and nothing is announced.
+ * Only used by the block importer thread. Other threads changing the chain hold {@link #getLock()},
+ * so they never build on or pop off the uncommitted blocks of a group.
+ */
+final class BulkSyncGroup {
+
+  private final Stores stores;
+  private final BlockchainImpl blockchain;
+  private final Consumer<Block> announce;
+
+  // held from begin to end
+  private final ReentrantLock lock = new ReentrantLock();
+  private final List<Block> pushedBlocks = new ArrayList<>();
+  private Block lastBlockBefore;
+  private boolean committed;
+
+  BulkSyncGroup(Stores stores, BlockchainImpl blockchain, Consumer<Block> announce) {
+    this.stores = stores;
+    this.blockchain = blockchain;
+    this.announce = announce;
+  }
+
+  Lock getLock() {
+    return lock;
+  }
+
+  void begin() {
+    lock.lock();
+    try {
+      lastBlockBefore = blockchain.getLastBlock();
+      committed = false;
+      stores.beginTransaction();
+    } catch (RuntimeException e) {
+      lastBlockBefore = null;
+      lock.unlock();
+      throw e;
+    }
+  }
+
+  boolean isOpen() {
+    return lastBlockBefore != null && lock.isHeldByCurrentThread();
+  }
+
+  /**
+   * Announces {@code block} right away outside of a group, or once the group is committed.
+   */
+  void pushed(Block block) {
+    if (isOpen()) {
+      pushedBlocks.add(block);
+    } else {
+      announce.accept(block);
+    }
+  }
+
+  void commit() {
+    stores.commitTransaction();
+    committed = true;
+  }
+
+  void rollback() {
+    stores.rollbackTransaction();
+    pushedBlocks.clear();
+    blockchain.setLastBlock(lastBlockBefore);
+  }
+
+  void end() {
+    try {
+      try {
+        stores.endTransaction();
+      } finally {
+        lastBlockBefore = null;
+      }
+      List<Block> committedBlocks = committed ? new ArrayList<>(pushedBlocks) : new ArrayList<>();
+      pushedBlocks.clear();
+      // still under the lock, so nobody pops the blocks off before they are announced
+      committedBlocks.forEach(announce);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
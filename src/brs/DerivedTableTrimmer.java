@@ -0,0 +1,111 @@
+package brs;
+
+import brs.db.DerivedTable;
+import brs.db.store.DerivedTableManager;
+import brs.db.store.Stores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Trims the derived tables in the background instead of inside the transaction of every 1440th block.
+ * Every table is trimmed in its own transaction on the connection of the trimmer thread. A run stops
+ * starting new tables after {@code maxMillisPerRun}, the remaining tables of the pass are left to the
+ * next runs. The trim height is requested before the pass starts, so {@link BlockchainProcessor#getMinRollbackHeight()}
+ * already keeps rollbacks above it while the pass runs. Every table is trimmed holding the locks the
+ * block import writes the derived tables under, so a push or pop off never loses a lock conflict
+ * with the trimmer in the database.
+ */
+final class DerivedTableTrimmer implements Runnable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DerivedTableTrimmer.class);
+
+  private final DerivedTableManager derivedTableManager;
+  private final Stores stores;
+  private final BooleanSupplier paused;
+  // taken in this order
+  private final List<Lock> importLocks;
+  private final long maxMillisPerRun;
+
+  private final AtomicInteger requestedHeight = new AtomicInteger();
+  // state of the current pass, only used by the trimmer thread
+  private int height;
+  private int nextTable;
+  private int runs;
+  private long busyMillis;
+
+  DerivedTableTrimmer(DerivedTableManager derivedTableManager, Stores stores, BooleanSupplier paused, List<Lock> importLocks, long maxMillisPerRun) {
+    this.derivedTableManager = derivedTableManager;
+    this.stores = stores;
+    this.paused = paused;
+    this.importLocks = importLocks;
+    this.maxMillisPerRun = Math.max(maxMillisPerRun, 1);
+  }
+
+  /**
+   * Starts a new pass trimming all derived tables to {@code height}. A pass still in progress is
+   * restarted at the new height.
+   */
+  void requestTrim(int height) {
+    requestedHeight.accumulateAndGet(height, Math::max);
+  }
+
+  @Override
+  public void run() {
+    if (paused.getAsBoolean()) {
+      return;
+    }
+    int requested = requestedHeight.get();
+    if (requested > height) {
+      height = requested;
+      nextTable = 0;
+      runs = 0;
+      busyMillis = 0;
+    }
+    List<DerivedTable> tables = derivedTableManager.getDerivedTables();
+    if (height == 0 || nextTable >= tables.size()) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    runs++;
+    try {
+      while (nextTable < tables.size() && System.currentTimeMillis() - start < maxMillisPerRun && !paused.getAsBoolean()) {
+        trim(tables.get(nextTable));
+        nextTable++;
+      }
+    } catch (RuntimeException e) {
+      // the table is tried again in the next run
+      logger.info("Error trimming derived table {} to height {}", tables.get(nextTable).getClass().getName(), height, e);
+    } finally {
+      busyMillis += System.currentTimeMillis() - start;
+    }
+
+    if (nextTable < tables.size()) {
+      logger.debug("Trimmed {} of {} derived tables to height {}", nextTable, tables.size(), height);
+    } else {
+      logger.info("Trimmed {} derived tables to height {} in {} ms over {} runs", tables.size(), height, busyMillis, runs);
+    }
+  }
+
+  private void trim(DerivedTable table) {
+    importLocks.forEach(Lock::lock);
+    try {
+      stores.beginTransaction();
+      table.trim(height);
+      stores.commitTransaction();
+    } catch (RuntimeException e) {
+      stores.rollbackTransaction();
+      throw e;
+    } finally {
+      stores.endTransaction();
+      for (int i = importLocks.size() - 1; i >= 0; i--) {
+        importLocks.get(i).unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package brs;
+
+import brs.unconfirmedtransactions.TouchedKeys;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The unconfirmed transactions that passed the checks against the chain in the last generateBlock.
+ * They are carried over to the next blocks, a block only drops the transactions that refer to
+ * something it touched, popped blocks drop all of them.
+ */
+final class PreCheckedTransactions {
+
+  private final Map<Long, Transaction> transactions = new HashMap<>();
+  // counts the changes of the chain, checks that raced with one are not kept
+  private long generation;
+
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  synchronized boolean contains(long transactionId) {
+    return transactions.containsKey(transactionId);
+  }
+
+  /**
+   * Replaces the transactions with those that passed the checks started at {@code checkedGeneration},
+   * so they follow the unconfirmed transactions. Nothing is kept if the chain changed in between.
+   */
+  synchronized void set(Collection<Transaction> passed, long checkedGeneration) {
+    transactions.clear();
+    if (checkedGeneration == generation) {
+      passed.forEach(transaction -> transactions.put(transaction.getId(), transaction));
+    }
+  }
+
+  synchronized void forget(TouchedKeys touchedKeys) {
+    generation++;
+    if (touchedKeys.touchesAll()) {
+      transactions.clear();
+    } else {
+      transactions.values().removeIf(touchedKeys::touches);
+    }
+  }
+}
@@ -189,6 +189,24 @@ public class Transaction implements Comparable<Transaction> {
   private final AtomicReference<String> stringId = new AtomicReference<>();
   private final AtomicLong senderId = new AtomicLong();
   private final AtomicReference<String> fullHash = new AtomicReference<>();
+  private final AtomicReference<SerializedBytes> serializedBytes = new AtomicReference<>();
+
+  /**
+   * The encoded transaction, valid as long as the signature and the encoding it was created for don't change.
+   */
+  private static final class SerializedBytes {
+    private final byte[] signature;
+    private final boolean nqt;
+    private final byte[] bytes;
+    private final byte[] unsignedBytes;
+
+    private SerializedBytes(byte[] signature, boolean nqt, byte[] bytes, byte[] unsignedBytes) {
+      this.signature = signature;
+      this.nqt = nqt;
+      this.bytes = bytes;
+      this.unsignedBytes = unsignedBytes;
+    }
+  }
 
   private Transaction(Builder builder) throws AtmException.NotValidException {
 
@@ -365,13 +383,13 @@ public class Transaction implements Comparable<Transaction> {
       }
       byte[] hash;
       if (useNQT()) {
-        byte[] data = zeroSignature(getBytes());
+        byte[] data = getSerializedBytes().unsignedBytes;
         byte[] signatureHash = Crypto.sha256().digest(signature.get() != null ? signature.get() : new byte[64]);
         MessageDigest digest = Crypto.sha256();
         digest.update(data);
         hash = digest.digest(signatureHash);
       } else {
-        hash = Crypto.sha256().digest(getBytes());
+        hash = Crypto.sha256().digest(getSerializedBytes().bytes);
       }
       long longId = Convert.fullHashToId(hash);
       id.set(longId);
@@ -422,6 +440,26 @@ public class Transaction implements Comparable<Transaction> {
   }
 
   public byte[] getBytes() {
+    return getSerializedBytes().bytes.clone();
+  }
+
+  private SerializedBytes getSerializedBytes() {
+    byte[] currentSignature = signature.get();
+    boolean nqt = useNQT();
+    SerializedBytes serialized = serializedBytes.get();
+    if (serialized != null && serialized.signature == currentSignature && serialized.nqt == nqt) {
+      return serialized;
+    }
+    byte[] bytes = encode(currentSignature);
+    serialized = new SerializedBytes(currentSignature, nqt, bytes, zeroSignature(bytes.clone()));
+    // unsigned types encode the sender differently depending on the current height, see encode
+    if (type.isSigned()) {
+      serializedBytes.set(serialized);
+    }
+    return serialized;
+  }
+
+  private byte[] encode(byte[] signature) {
     try {
       ByteBuffer buffer = ByteBuffer.allocate(getSize());
       buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -453,7 +491,7 @@ public class Transaction implements Comparable<Transaction> {
           buffer.putLong(0L);
         }
       }
-      buffer.put(signature.get() != null ? signature.get() : new byte[64]);
+      buffer.put(signature != null ? signature : new byte[64]);
       if (version > 0) {
         buffer.putInt(getFlags());
         buffer.putInt(ecBlockHeight);
@@ -470,6 +508,10 @@ public class Transaction implements Comparable<Transaction> {
   }
 
   public static Transaction parseTransaction(byte[] bytes) throws AtmException.ValidationException {
+    return parseTransaction(bytes, Integer.MAX_VALUE);
+  }
+
+  static Transaction parseTransaction(byte[] bytes, int height) throws AtmException.ValidationException {
     try {
       ByteBuffer buffer = ByteBuffer.wrap(bytes);
       buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -507,7 +549,8 @@ public class Transaction implements Comparable<Transaction> {
           .referencedTransactionFullHash(referencedTransactionFullHash)
           .signature(signature)
           .ecBlockHeight(ecBlockHeight)
-          .ecBlockId(ecBlockId);
+          .ecBlockId(ecBlockId)
+          .height(height);
       if (transactionType.hasRecipient()) {
         builder.recipientId(recipientId);
       }
@@ -524,7 +567,7 @@ public class Transaction implements Comparable<Transaction> {
   }
 
   public byte[] getUnsignedBytes() {
-    return zeroSignature(getBytes());
+    return getSerializedBytes().unsignedBytes.clone();
   }
 
   public JsonObject getJsonObject() {
@@ -609,7 +652,7 @@ public class Transaction implements Comparable<Transaction> {
     if (signature.get() != null) {
       throw new IllegalStateException("Transaction already signed");
     }
-    signature.set(Crypto.sign(getBytes(), secretPhrase));
+    signature.set(Crypto.sign(getSerializedBytes().bytes, secretPhrase));
   }
 
   @Override
@@ -627,10 +670,23 @@ public class Transaction implements Comparable<Transaction> {
   }
 
   public boolean verifySignature() {
-    byte[] data = zeroSignature(getBytes());
+    byte[] data = getSerializedBytes().unsignedBytes;
     return Crypto.verify(signature.get(), data, senderPublicKey, useNQT());
   }
 
+  /**
+   * Verifies the signatures of all given transactions in one batch.
+   * @return the first transaction with an invalid signature, or null if all are valid
+   */
+  public static Transaction verifySignatures(List<Transaction> transactions) {
+    Crypto.SignatureBatch batch = new Crypto.SignatureBatch();
+    for (Transaction transaction : transactions) {
+      batch.add(transaction.signature.get(), transaction.getSerializedBytes().unsignedBytes, transaction.senderPublicKey, transaction.useNQT());
+    }
+    int invalid = batch.verify();
+    return invalid < 0 ? null : transactions.get(invalid);
+  }
+
   public int getSize() {
     return signatureOffset() + 64  + (version > 0 ? 4 + 4 + 8 : 0) + appendagesSize;
   }
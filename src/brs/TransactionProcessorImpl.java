@@ -11,6 +11,7 @@ import brs.props.Props;
 import brs.services.AccountService;
 import brs.services.TimeService;
 import brs.services.TransactionService;
+import brs.unconfirmedtransactions.TouchedKeys;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
 import brs.util.JSON;
 import brs.util.Listener;
@@ -27,9 +28,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static brs.http.common.ResultFields.UNCONFIRMED_TRANSACTIONS_RESPONSE;
 
@@ -39,7 +43,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
   private final boolean testUnconfirmedTransactions;
 
-  private final Object unconfirmedTransactionsSyncObj = new Object();
+  private static final int SENDER_LOCKS = 64;
+
+  // admissions share the read lock and only exclude each other per sender, pushing and popping blocks takes the write lock
+  private final ReentrantReadWriteLock unconfirmedTransactionsLock = new ReentrantReadWriteLock();
+  private final Object[] senderLocks = new Object[SENDER_LOCKS];
 
   private final Listeners<List<? extends Transaction>,Event> transactionListeners = new Listeners<>();
 
@@ -69,6 +77,9 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     this.transactionService = transactionService;
 
     this.testUnconfirmedTransactions = propertyService.getBoolean(Props.BRS_TEST_UNCONFIRMED_TRANSACTIONS);
+    for (int i = 0; i < SENDER_LOCKS; i++) {
+      senderLocks[i] = new Object();
+    }
     this.unconfirmedTransactionStore = stores.getUnconfirmedTransactionStore();
 
     this.foodDispenser = (unconfirmedTransactionStore::getAllFor);
@@ -77,51 +88,49 @@ public class TransactionProcessorImpl implements TransactionProcessor {
       Runnable getUnconfirmedTransactions = () -> {
           try {
               try {
-                  synchronized (unconfirmedTransactionsSyncObj) {
-                      Peer peer = Peers.getAnyPeer(Peer.State.CONNECTED);
-                      if (peer == null) {
-                          return;
-                      }
-                      JsonObject response = Peers.readUnconfirmedTransactionsNonBlocking(peer).get();
-                      if (response == null) {
-                          return;
-                      }
+                  Peer peer = Peers.getAnyPeer(Peer.State.CONNECTED);
+                  if (peer == null) {
+                      return;
+                  }
+                  JsonObject response = Peers.readUnconfirmedTransactionsNonBlocking(peer).get();
+                  if (response == null) {
+                      return;
+                  }
 
-                      JsonArray transactionsData = JSON.getAsJsonArray(response.get(UNCONFIRMED_TRANSACTIONS_RESPONSE));
+                  JsonArray transactionsData = JSON.getAsJsonArray(response.get(UNCONFIRMED_TRANSACTIONS_RESPONSE));
 
-                      if (transactionsData == null) {
-                          return;
-                      }
-                      try {
-                          List<Transaction> addedTransactions = processPeerTransactions(transactionsData, peer);
-                          Peers.feedingTime(peer, foodDispenser, doneFeedingLog);
-
-                          if (!addedTransactions.isEmpty()) {
-                              List<Peer> activePrioPlusExtra = Peers.getAllActivePriorityPlusSomeExtraPeers();
-                              activePrioPlusExtra.remove(peer);
+                  if (transactionsData == null) {
+                      return;
+                  }
+                  try {
+                      List<Transaction> addedTransactions = processPeerTransactions(transactionsData, peer);
+                      Peers.feedingTime(peer, foodDispenser, doneFeedingLog);
 
-                              List<CompletableFuture<?>> expectedResults = new ArrayList<>();
+                      if (!addedTransactions.isEmpty()) {
+                          List<Peer> activePrioPlusExtra = Peers.getAllActivePriorityPlusSomeExtraPeers();
+                          activePrioPlusExtra.remove(peer);
 
-                              for (Peer otherPeer : activePrioPlusExtra) {
-                                  CompletableFuture<JsonObject> unconfirmedTransactionsResult = Peers.readUnconfirmedTransactionsNonBlocking(otherPeer);
+                          List<CompletableFuture<?>> expectedResults = new ArrayList<>();
 
-                                  unconfirmedTransactionsResult.whenComplete((jsonObject, throwable) -> {
-                                      try {
-                                          processPeerTransactions(transactionsData, otherPeer);
-                                          Peers.feedingTime(otherPeer, foodDispenser, doneFeedingLog);
-                                      } catch (ValidationException | RuntimeException e) {
-                                          peer.blacklist(e, "pulled invalid data using getUnconfirmedTransactions");
-                                      }
-                                  });
+                          for (Peer otherPeer : activePrioPlusExtra) {
+                              CompletableFuture<JsonObject> unconfirmedTransactionsResult = Peers.readUnconfirmedTransactionsNonBlocking(otherPeer);
 
-                                  expectedResults.add(unconfirmedTransactionsResult);
-                              }
+                              unconfirmedTransactionsResult.whenComplete((jsonObject, throwable) -> {
+                                  try {
+                                      processPeerTransactions(transactionsData, otherPeer);
+                                      Peers.feedingTime(otherPeer, foodDispenser, doneFeedingLog);
+                                  } catch (ValidationException | RuntimeException e) {
+                                      peer.blacklist(e, "pulled invalid data using getUnconfirmedTransactions");
+                                  }
+                              });
 
-                              CompletableFuture.allOf(expectedResults.toArray(new CompletableFuture[0])).join();
+                              expectedResults.add(unconfirmedTransactionsResult);
                           }
-                      } catch (ValidationException | RuntimeException e) {
-                          peer.blacklist(e, "pulled invalid data using getUnconfirmedTransactions");
+
+                          CompletableFuture.allOf(expectedResults.toArray(new CompletableFuture[0])).join();
                       }
+                  } catch (ValidationException | RuntimeException e) {
+                      peer.blacklist(e, "pulled invalid data using getUnconfirmedTransactions");
                   }
               } catch (Exception e) {
                   logger.debug("Error processing unconfirmed transactions", e);
@@ -149,8 +158,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     transactionListeners.notify(transactions, eventType);
   }
 
-  public Object getUnconfirmedTransactionsSyncObj() {
-    return unconfirmedTransactionsSyncObj;
+  /**
+   * No unconfirmed transaction is admitted while this lock is held.
+   */
+  public Lock getUnconfirmedTransactionsLock() {
+    return unconfirmedTransactionsLock.writeLock();
   }
 
   @Override
@@ -246,7 +258,8 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     
   @Override
   public void clearUnconfirmedTransactions() {
-    synchronized (unconfirmedTransactionsSyncObj) {
+    unconfirmedTransactionsLock.writeLock().lock();
+    try {
       List<Transaction> removed;
       try {
         stores.beginTransaction();
@@ -263,12 +276,8 @@ public class TransactionProcessorImpl implements TransactionProcessor {
       }
 
       transactionListeners.notify(removed, Event.REMOVED_UNCONFIRMED_TRANSACTIONS);
-    }
-  }
-
-  void requeueAllUnconfirmedTransactions() {
-    synchronized (unconfirmedTransactionsSyncObj) {
-      unconfirmedTransactionStore.resetAccountBalances();
+    } finally {
+      unconfirmedTransactionsLock.writeLock().unlock();
     }
   }
 
@@ -296,19 +305,34 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     if (blockchain.getHeight() <= Constants.NQT_BLOCK) {
       return new ArrayList<>();
     }
+    List<JsonElement> transactionsDataList = new ArrayList<>();
+    transactionsData.forEach(transactionsDataList::add);
+    Transaction[] parsedTransactions = new Transaction[transactionsDataList.size()];
+    AtmException.ValidationException[] errors = new AtmException.ValidationException[transactionsDataList.size()];
+    // parsing only needs the CPU and doesn't depend on the other transactions, validation and the economic
+    // clustering check look up the chain in the database and are kept off the common pool
+    IntStream.range(0, transactionsDataList.size()).parallel().forEach(i -> {
+      try {
+        parsedTransactions[i] = parseTransaction(JSON.getAsJsonObject(transactionsDataList.get(i)));
+      } catch (AtmException.ValidationException e) {
+        errors[i] = e;
+      }
+    });
     List<Transaction> transactions = new ArrayList<>();
-    for (JsonElement transactionData : transactionsData) {
+    for (int i = 0; i < parsedTransactions.length; i++) {
       try {
-        Transaction transaction = parseTransaction(JSON.getAsJsonObject(transactionData));
+        if (errors[i] != null) {
+          throw errors[i];
+        }
+        Transaction transaction = parsedTransactions[i];
         transactionService.validate(transaction);
-        if(!this.economicClustering.verifyFork(transaction)) {
-          continue;
+        if (this.economicClustering.verifyFork(transaction)) {
+          transactions.add(transaction);
         }
-        transactions.add(transaction);
       } catch (AtmException.NotCurrentlyValidException ignore) {
-      } catch (AtmException.NotValidException e) {
+      } catch (AtmException.ValidationException e) {
         if (logger.isDebugEnabled()) {
-          logger.debug("Invalid transaction from peer: {}", JSON.toJsonString(transactionData));
+          logger.debug("Invalid transaction from peer: {}", JSON.toJsonString(transactionsDataList.get(i)));
         }
         throw e;
       }
@@ -317,63 +341,98 @@ public class TransactionProcessorImpl implements TransactionProcessor {
   }
 
   private List<Transaction> processTransactions(Collection<Transaction> transactions, Peer peer) throws AtmException.ValidationException {
-    synchronized (unconfirmedTransactionsSyncObj) {
-      if (transactions.isEmpty()) {
-        return Collections.emptyList();
+    if (transactions.isEmpty() || blockchain.getHeight() < Constants.NQT_BLOCK) {
+      return Collections.emptyList();
+    }
+
+    List<Transaction> newTransactions = new ArrayList<>();
+    int curTime = timeService.getEpochTime();
+    for (Transaction transaction : transactions) {
+      if (transaction.getTimestamp() > curTime + 15 || transaction.getExpiration() < curTime
+          || transaction.getDeadline() > 1440) {
+        continue;
+      }
+      if (isKnown(transaction, peer)) {
+        continue;
       }
+      newTransactions.add(transaction);
+    }
 
-      List<Transaction> addedUnconfirmedTransactions = new ArrayList<>();
+    // the signatures don't depend on the chain state, they are verified in parallel without holding any lock
+    List<Transaction> signedTransactions = newTransactions.parallelStream()
+        .filter(Transaction::verifySignature)
+        .collect(Collectors.toList());
+    if (signedTransactions.size() < newTransactions.size() && logger.isDebugEnabled()) {
+      logger.debug("{} of {} transactions failed to verify their signature", newTransactions.size() - signedTransactions.size(), newTransactions.size());
+    }
 
-      for (Transaction transaction : transactions) {
+    List<Transaction> addedUnconfirmedTransactions = new ArrayList<>();
 
+    unconfirmedTransactionsLock.readLock().lock();
+    try {
+      for (Transaction transaction : signedTransactions) {
         try {
-          int curTime = timeService.getEpochTime();
-          if (transaction.getTimestamp() > curTime + 15 || transaction.getExpiration() < curTime
-              || transaction.getDeadline() > 1440) {
-            continue;
-          }
-
-          try {
-            stores.beginTransaction();
-            if (blockchain.getHeight() < Constants.NQT_BLOCK) {
-              break; // not ready to process transactions
-            }
-
-            if (dbs.getTransactionDb().hasTransaction(transaction.getId()) || unconfirmedTransactionStore.exists(transaction.getId())) {
-              stores.commitTransaction();
-              unconfirmedTransactionStore.markFingerPrintsOf(peer, Collections.singletonList(transaction));
-              continue;
-            }
-
-            if (!(transaction.verifySignature() && transactionService.verifyPublicKey(transaction))) {
-              if (accountService.getAccount(transaction.getSenderId()) != null && logger.isDebugEnabled()) {
-                logger.debug("Transaction {} failed to verify", JSON.toJsonString(transaction.getJsonObject()));
-              }
-              stores.commitTransaction();
-              continue;
-            }
-
-            if(unconfirmedTransactionStore.put(transaction, peer)) {
+          synchronized (senderLocks[(int) ((transaction.getSenderId() ^ (transaction.getSenderId() >>> 32)) & (SENDER_LOCKS - 1))]) {
+            if (addUnconfirmedTransaction(transaction, peer)) {
               addedUnconfirmedTransactions.add(transaction);
             }
-
-            stores.commitTransaction();
-          } catch (Exception e) {
-            stores.rollbackTransaction();
-            throw e;
-          } finally {
-            stores.endTransaction();
           }
         } catch (RuntimeException e) {
           logger.info("Error processing transaction", e);
         }
       }
+    } finally {
+      unconfirmedTransactionsLock.readLock().unlock();
+    }
 
-      if (! addedUnconfirmedTransactions.isEmpty()) {
-        transactionListeners.notify(addedUnconfirmedTransactions, Event.ADDED_UNCONFIRMED_TRANSACTIONS);
+    if (! addedUnconfirmedTransactions.isEmpty()) {
+      transactionListeners.notify(addedUnconfirmedTransactions, Event.ADDED_UNCONFIRMED_TRANSACTIONS);
+    }
+
+    return addedUnconfirmedTransactions;
+  }
+
+  private boolean isKnown(Transaction transaction, Peer peer) {
+    if (unconfirmedTransactionStore.exists(transaction.getId()) || dbs.getTransactionDb().hasTransaction(transaction.getId())) {
+      // broadcasting our own transactions has no peer to remember
+      if (peer != null) {
+        unconfirmedTransactionStore.markFingerPrintsOf(peer, Collections.singletonList(transaction));
       }
+      return true;
+    }
+    return false;
+  }
 
-      return addedUnconfirmedTransactions;
+  /**
+   * Has to be called holding the lock of the sender, the public key of a new account must not be set twice.
+   */
+  private boolean addUnconfirmedTransaction(Transaction transaction, Peer peer) throws AtmException.ValidationException {
+    try {
+      stores.beginTransaction();
+
+      // another peer may have handed us the same transaction since it was checked
+      if (isKnown(transaction, peer)) {
+        stores.commitTransaction();
+        return false;
+      }
+
+      if (!transactionService.verifyPublicKey(transaction)) {
+        if (accountService.getAccount(transaction.getSenderId()) != null && logger.isDebugEnabled()) {
+          logger.debug("Transaction {} failed to verify", JSON.toJsonString(transaction.getJsonObject()));
+        }
+        stores.commitTransaction();
+        return false;
+      }
+
+      boolean added = unconfirmedTransactionStore.put(transaction, peer);
+
+      stores.commitTransaction();
+      return added;
+    } catch (Exception e) {
+      stores.rollbackTransaction();
+      throw e;
+    } finally {
+      stores.endTransaction();
     }
   }
 
@@ -389,10 +448,27 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     return peersToSendTo.size();
   }
 
-  public void revalidateUnconfirmedTransactions() {
+  /**
+   * Reserves the balances of the touched accounts again and validates the unconfirmed transactions
+   * that refer to something touched, the others can't have become invalid.
+   */
+  public void revalidateUnconfirmedTransactions(TouchedKeys touchedKeys) {
+    unconfirmedTransactionsLock.writeLock().lock();
+    try {
+      Collection<Long> accounts = touchedKeys.touchesAll()
+          ? unconfirmedTransactionStore.getAll().stream().map(Transaction::getSenderId).collect(Collectors.toSet())
+          : touchedKeys.getAccounts();
+      unconfirmedTransactionStore.resetAccountBalances(accounts);
+    } finally {
+      unconfirmedTransactionsLock.writeLock().unlock();
+    }
+
     final List<Transaction> invalidTransactions = new ArrayList<>();
 
     for(Transaction t: unconfirmedTransactionStore.getAll()) {
+      if (!touchedKeys.touches(t)) {
+        continue;
+      }
       try {
         this.transactionService.validate(t);
       } catch (ValidationException e) {
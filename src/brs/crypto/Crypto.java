@@ -6,6 +6,9 @@ import org.bouncycastle.jcajce.provider.digest.MD5;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
 public final class Crypto {
   static final AtmCrypto atmCrypto = AtmCrypto.getInstance();
@@ -49,6 +52,52 @@ public final class Crypto {
       return atmCrypto.verify(signature, message, publicKey, enforceCanonical);
   }
 
+  /**
+   * Collects signatures, e.g. of all transactions of a block, to verify them in one call.
+   */
+  public static final class SignatureBatch {
+    // below this size splitting the work costs more than it saves
+    private static final int MIN_PARALLEL_SIZE = 8;
+
+    private final List<byte[]> signatures = new ArrayList<>();
+    private final List<byte[]> messages = new ArrayList<>();
+    private final List<byte[]> publicKeys = new ArrayList<>();
+    private final List<Boolean> enforceCanonical = new ArrayList<>();
+
+    public void add(byte[] signature, byte[] message, byte[] publicKey, boolean enforceCanonical) {
+      signatures.add(signature);
+      messages.add(message);
+      publicKeys.add(publicKey);
+      this.enforceCanonical.add(enforceCanonical);
+    }
+
+    public int size() {
+      return signatures.size();
+    }
+
+    /**
+     * Verifies all signatures, spread over the common fork join pool. Curve25519 signatures can't be
+     * combined into a single check, the batch only saves the per call overhead and uses all cores.
+     * @return the index of the first invalid signature, or -1 if all are valid
+     */
+    public int verify() {
+      if (size() >= MIN_PARALLEL_SIZE && IntStream.range(0, size()).parallel().allMatch(this::verify)) {
+        return -1;
+      }
+      // find the culprit, in order, so the reported transaction does not depend on scheduling
+      for (int i = 0; i < size(); i++) {
+        if (!verify(i)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private boolean verify(int i) {
+      return signatures.get(i) != null && Crypto.verify(signatures.get(i), messages.get(i), publicKeys.get(i), enforceCanonical.get(i));
+    }
+  }
+
   public static byte[] aesEncrypt(byte[] plaintext, byte[] myPrivateKey, byte[] theirPublicKey) {
     return atmCrypto.aesSharedEncrypt(plaintext, myPrivateKey, theirPublicKey);
   }
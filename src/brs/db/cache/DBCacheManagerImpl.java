@@ -2,6 +2,8 @@ package brs.db.cache;
 
 import brs.Account;
 import brs.db.AtmKey;
+import brs.props.PropertyService;
+import brs.props.Props;
 import brs.statistics.StatisticsManagerImpl;
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
@@ -22,16 +24,29 @@ public class DBCacheManagerImpl {
 
   private final boolean statisticsEnabled;
 
-  private final HashMap<String, CacheConfiguration<AtmKey, ?>> caches = new HashMap<>();
+  private final HashMap<String, CacheConfiguration<?, ?>> caches = new HashMap<>();
 
-  public DBCacheManagerImpl(StatisticsManagerImpl statisticsManager) {
+  public DBCacheManagerImpl(PropertyService propertyService, StatisticsManagerImpl statisticsManager) {
     this.statisticsManager = statisticsManager;
     statisticsEnabled = true;
 
-    caches.put("account", CacheConfigurationBuilder.newCacheConfigurationBuilder(AtmKey.class, Account.class, ResourcePoolsBuilder.heap(8192)).build());
+    caches.put("account", CacheConfigurationBuilder.newCacheConfigurationBuilder(AtmKey.class, Account.class, ResourcePoolsBuilder.heap(Math.max(propertyService.getInt(Props.DB_CACHE_ACCOUNT), 1))).build());
+
+    // second-level caches of committed entities, see brs.db.sql.ReadCache
+    addEntityCache("asset", propertyService.getInt(Props.DB_CACHE_ASSET));
+    int aliasCacheSize = propertyService.getInt(Props.DB_CACHE_ALIAS);
+    addEntityCache("alias", aliasCacheSize);
+    if (aliasCacheSize > 0) {
+      caches.put("alias_name", CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Long.class, ResourcePoolsBuilder.heap(aliasCacheSize)).build());
+    }
+    addEntityCache("at_state", propertyService.getInt(Props.DB_CACHE_AT_STATE));
+    addEntityCache("reward_recip_assign", propertyService.getInt(Props.DB_CACHE_REWARD_RECIPIENT));
+    int orderCacheSize = propertyService.getInt(Props.DB_CACHE_ORDER);
+    addEntityCache("ask_order", orderCacheSize);
+    addEntityCache("bid_order", orderCacheSize);
 
     CacheManagerBuilder cacheBuilder = CacheManagerBuilder.newCacheManagerBuilder();
-    for (Map.Entry<String, CacheConfiguration<AtmKey, ?>> cache : caches.entrySet()) {
+    for (Map.Entry<String, CacheConfiguration<?, ?>> cache : caches.entrySet()) {
       cacheBuilder = cacheBuilder.withCache(cache.getKey(), cache.getValue());
     }
     cacheManager = cacheBuilder.build(true);
@@ -43,18 +58,45 @@ public class DBCacheManagerImpl {
     }
   }
 
-  private <V> Cache<AtmKey, V> getEHCache(String name, Class<V> valueClass) {
-    return cacheManager.getCache(name, AtmKey.class, valueClass);
+  private void addEntityCache(String table, int size) {
+    if (size > 0) {
+      caches.put(table, CacheConfigurationBuilder.newCacheConfigurationBuilder(AtmKey.class, Object.class, ResourcePoolsBuilder.heap(size)).build());
+    }
+  }
+
+  private <K, V> Cache<K, V> getEHCache(String name, Class<K> keyClass, Class<V> valueClass) {
+    return cacheManager.getCache(name, keyClass, valueClass);
   }
 
   public <V> Cache<AtmKey, V> getCache(String name, Class<V> valueClass) {
-    Cache<AtmKey, V> cache = getEHCache(name, valueClass);
+    return getCache(name, AtmKey.class, valueClass);
+  }
+
+  /**
+   * @return the cache, or null if it is not configured or disabled
+   */
+  public <K, V> Cache<K, V> getCache(String name, Class<K> keyClass, Class<V> valueClass) {
+    if (!caches.containsKey(name)) {
+      return null;
+    }
+    Cache<K, V> cache = getEHCache(name, keyClass, valueClass);
     return statisticsEnabled ? new StatisticsCache<>(cache, name, statisticsManager) : cache;
   }
 
+  /**
+   * Clears the account cache, the only one holding uncommitted entities. The read caches are filled
+   * outside of transactions and invalidated after commits, see brs.db.sql.ReadCache, a rollback leaves them valid.
+   */
+  public void flushTransactionCache() {
+    Cache<AtmKey, Account> cache = getEHCache("account", AtmKey.class, Account.class);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
   public void flushCache() {
-    for (Map.Entry<String, CacheConfiguration<AtmKey, ?>> cacheEntry : caches.entrySet()) {
-      Cache<?,?> cache = getEHCache(cacheEntry.getKey(), cacheEntry.getValue().getValueType());
+    for (Map.Entry<String, CacheConfiguration<?, ?>> cacheEntry : caches.entrySet()) {
+      Cache<?,?> cache = getEHCache(cacheEntry.getKey(), cacheEntry.getValue().getKeyType(), cacheEntry.getValue().getValueType());
       if ( cache != null )
         cache.clear();
     }
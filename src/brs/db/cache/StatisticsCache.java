@@ -22,7 +22,15 @@ class StatisticsCache<K, V> implements Cache<K, V> {
 
   @Override
   public V get(K k) {
-    return wrappedCache.get(k);
+    final V result = wrappedCache.get(k);
+
+    if(result != null) {
+      statisticsManager.foundObjectInCache(cacheName);
+    } else {
+      statisticsManager.didNotFindObjectInCache(cacheName);
+    }
+
+    return result;
   }
 
   @Override
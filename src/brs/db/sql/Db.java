@@ -6,14 +6,15 @@ import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.Dbs;
 import brs.props.PropertyService;
 import brs.props.Props;
+import brs.util.ThreadPool;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
+import org.jooq.Table;
 import org.jooq.conf.Settings;
-import org.jooq.conf.StatementType;
 import org.jooq.impl.DSL;
 import org.jooq.tools.jdbc.JDBCUtils;
 import org.mariadb.jdbc.MariaDbDataSource;
@@ -23,11 +24,18 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -36,10 +44,21 @@ public final class Db {
   private static final Logger logger = LoggerFactory.getLogger(Db.class);
 
   private static HikariDataSource cp;
+  private static HikariDataSource readCp;
   private static SQLDialect dialect;
   private static final ThreadLocal<Connection> localConnection = new ThreadLocal<>();
+  private static final ThreadLocal<DSLContext> localContext = new ThreadLocal<>();
+  private static final Map<String, String> preparedQueries = new ConcurrentHashMap<>();
+  private static DSLContext pooledContext;
+  private static DSLContext readContext;
+  private static final ThreadLocal<Boolean> replicaReads = new ThreadLocal<>();
   private static final ThreadLocal<Map<String, Map<AtmKey, Object>>> transactionCaches = new ThreadLocal<>();
   private static final ThreadLocal<Map<String, Map<AtmKey, Object>>> transactionBatches = new ThreadLocal<>();
+  private static final ThreadLocal<Map<String, Runnable>> transactionBatchFlushes = new ThreadLocal<>();
+  private static final ThreadLocal<List<Runnable>> transactionCommitHooks = new ThreadLocal<>();
+  private static final ThreadLocal<Map<String, Runnable>> transactionRollbackHooks = new ThreadLocal<>();
+  // statements of pre-rendered SQL prepared on the transaction connection, closed with it
+  private static final ThreadLocal<Map<String, PreparedStatement>> transactionStatements = new ThreadLocal<>();
 
   private static DBCacheManagerImpl dbCacheManager;
 
@@ -72,6 +91,7 @@ public final class Db {
         config.setPassword(dbPassword);
 
       config.setMaximumPoolSize(propertyService.getInt(Props.DB_CONNECTIONS));
+      addDataSourceProperties(config);
 
       FluentConfiguration flywayBuilder = Flyway.configure()
               .dataSource(dbUrl, dbUsername, dbPassword)
@@ -83,20 +103,6 @@ public final class Db {
         case MARIADB:
           flywayBuilder.locations("classpath:/db/migration_mariadb");
           runFlyway = true;
-          config.setAutoCommit(true);
-          config.addDataSourceProperty("cachePrepStmts", "true");
-          config.addDataSourceProperty("prepStmtCacheSize", "512");
-          config.addDataSourceProperty("prepStmtCacheSqlLimit", "4096");
-          config.addDataSourceProperty("characterEncoding", "utf8mb4");
-          config.addDataSourceProperty("cacheServerConfiguration", "true");
-          config.addDataSourceProperty("useLocalSessionState", "true");
-          config.addDataSourceProperty("useLocalTransactionState", "true");
-          config.addDataSourceProperty("useUnicode", "true");
-          config.addDataSourceProperty("useServerPrepStmts", "true");
-          config.addDataSourceProperty("rewriteBatchedStatements", "true");
-          config.addDataSourceProperty("maintainTimeStats", "false");
-          config.addDataSourceProperty("useUnbufferedIO", "false");
-          config.addDataSourceProperty("useReadAheadInput", "false");
           MariaDbDataSource flywayDataSource = new MariaDbDataSource(dbUrl) {
             @Override
             protected synchronized void initialize() throws SQLException {
@@ -115,41 +121,105 @@ public final class Db {
             }
           };
           flywayBuilder.dataSource(flywayDataSource); // TODO Remove this hack once a stable version of Flyway has this bug fixed
-          config.setConnectionInitSql("SET NAMES utf8mb4;");
           break;
         case H2:
           Class.forName("org.h2.Driver");
           flywayBuilder.locations("classpath:/db/migration_h2");
           runFlyway = true;
-          config.setAutoCommit(true);
-          config.addDataSourceProperty("cachePrepStmts", "true");
-          config.addDataSourceProperty("prepStmtCacheSize", "250");
-          config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-          config.addDataSourceProperty("DATABASE_TO_UPPER", "false");
-          config.addDataSourceProperty("CASE_INSENSITIVE_IDENTIFIERS", "true");
           break;
         default:
           break;
       }
 
         cp = new HikariDataSource(config);
+        pooledContext = DSL.using(cp, dialect, getSettings());
 
       if (runFlyway) {
         logger.info("Running flyway migration");
         Flyway flyway = flywayBuilder.load();
         flyway.migrate();
       }
+
+      String readUrl = propertyService.getString(Props.DB_READ_URL);
+      if (readUrl != null && !readUrl.isEmpty()) {
+        initReadPool(propertyService, readUrl, dbUsername, dbPassword);
+      }
     } catch (Exception e) {
       throw new RuntimeException(e.toString(), e);
     }
   }
 
+  private static void addDataSourceProperties(HikariConfig config) {
+    switch (dialect) {
+      case MYSQL:
+      case MARIADB:
+        config.setAutoCommit(true);
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "512");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "4096");
+        config.addDataSourceProperty("characterEncoding", "utf8mb4");
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("useLocalTransactionState", "true");
+        config.addDataSourceProperty("useUnicode", "true");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("maintainTimeStats", "false");
+        config.addDataSourceProperty("useUnbufferedIO", "false");
+        config.addDataSourceProperty("useReadAheadInput", "false");
+        config.setConnectionInitSql("SET NAMES utf8mb4;");
+        break;
+      case H2:
+        config.setAutoCommit(true);
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("DATABASE_TO_UPPER", "false");
+        config.addDataSourceProperty("CASE_INSENSITIVE_IDENTIFIERS", "true");
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Opens the pool for API queries, e.g. on a MariaDB replica or a second pool on the same H2 database.
+   * It has to use the same SQL dialect as the main database.
+   */
+  private static void initReadPool(PropertyService propertyService, String readUrl, String dbUsername, String dbPassword) {
+    if (JDBCUtils.dialect(readUrl) != dialect) {
+      throw new IllegalArgumentException("DB.ReadUrl has to point to the same kind of database as DB.Url");
+    }
+    String readUsername = propertyService.getString(Props.DB_READ_USERNAME);
+    String readPassword = propertyService.getString(Props.DB_READ_PASSWORD);
+
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl(readUrl);
+    config.setPoolName("read-replica");
+    if (readUsername != null && !readUsername.isEmpty()) {
+      config.setUsername(readUsername);
+      config.setPassword(readPassword);
+    } else {
+      if (dbUsername != null)
+        config.setUsername(dbUsername);
+      if (dbPassword != null)
+        config.setPassword(dbPassword);
+    }
+    config.setMaximumPoolSize(propertyService.getInt(Props.DB_READ_CONNECTIONS));
+    config.setReadOnly(true);
+    addDataSourceProperties(config);
+
+    readCp = new HikariDataSource(config);
+    readContext = DSL.using(readCp, dialect, getSettings());
+    logger.info("API queries use the read replica at {}", readUrl);
+  }
+
   private Db() {
   } // never
 
-  public static Dbs getDbsByDatabaseType() {
+  public static Dbs getDbsByDatabaseType(ThreadPool threadPool) {
     logger.info("Using SQL Backend with Dialect {}", dialect.getName());
-    return new SqlDbs();
+    return new SqlDbs(threadPool);
   }
 
 
@@ -181,6 +251,9 @@ public final class Db {
         logger.info("Database shutdown completed.");
       }
     }
+    if (readCp != null && !readCp.isClosed()) {
+      readCp.close();
+    }
     if (cp != null && !cp.isClosed() ) {
       cp.close();
     }
@@ -203,35 +276,103 @@ public final class Db {
   }
 
   public static <T> T useDSLContext(Function<DSLContext, T> function) {
-      try (DSLContext context = getDSLContext()) {
-          return function.apply(context);
-      }
+    return function.apply(getDSLContext());
   }
 
   public static void useDSLContext(Consumer<DSLContext> consumer) { // TODO RxJava
-    try (DSLContext context = getDSLContext()) {
-      consumer.accept(context);
-    }
+    consumer.accept(getDSLContext());
   }
 
+  /**
+   * The contexts only wrap the data source or the transaction connection and are reused for all calls.
+   */
   private static DSLContext getDSLContext() {
-    Connection con    = localConnection.get();
+    DSLContext ctx = localContext.get();
+    if (ctx != null) {
+      return ctx;
+    }
+    return readContext != null && replicaReads.get() != null ? readContext : pooledContext;
+  }
+
+  /**
+   * Sends the queries of the current thread that run outside of a transaction to the read replica, if
+   * one is configured, until {@link #endReplicaReads()}. Used by the API, so that its queries don't compete
+   * with the block import for connections and locks. Lookups by key, see {@link #usePreparedStatement},
+   * always use the main database, because they fill caches the block import relies on.
+   */
+  public static void beginReplicaReads() {
+    replicaReads.set(Boolean.TRUE);
+  }
+
+  public static void endReplicaReads() {
+    replicaReads.remove();
+  }
+
+  private static Settings getSettings() {
     Settings settings = new Settings();
     settings.setRenderSchema(Boolean.FALSE);
+    return settings;
+  }
 
-    if (con == null) {
-      try ( DSLContext ctx = DSL.using(cp, dialect, settings) ) {
-        return ctx;
+  @FunctionalInterface
+  public interface StatementFunction<T> {
+    T apply(PreparedStatement statement) throws SQLException;
+  }
+
+  /**
+   * Returns the SQL registered under {@code key}, rendering it on first use. The SQL should use bind
+   * parameters only, so that the driver and the database can reuse the prepared statement.
+   */
+  static String getPreparedQuery(String key, Function<DSLContext, String> renderer) {
+    return preparedQueries.computeIfAbsent(key, k -> renderer.apply(pooledContext));
+  }
+
+  /**
+   * Runs pre-rendered SQL, see {@link #getPreparedQuery}, on the transaction connection or on a pooled one.
+   * On the transaction connection the statement is prepared once and reused until the transaction ends,
+   * pooled connections rely on the statement cache of the driver.
+   */
+  static <T> T usePreparedStatement(String sql, StatementFunction<T> function) {
+    Connection con = localConnection.get();
+    boolean pooled = con == null;
+    try {
+      if (!pooled) {
+        PreparedStatement statement = transactionStatements.get().get(sql);
+        if (statement == null) {
+          statement = con.prepareStatement(sql);
+          transactionStatements.get().put(sql, statement);
+        } else {
+          statement.clearParameters();
+        }
+        return function.apply(statement);
       }
-    }
-    else {
-      settings.setStatementType(StatementType.STATIC_STATEMENT);
-      try ( DSLContext ctx = DSL.using(con, dialect, settings) ) {
-        return ctx;
+      con = getPooledConnection();
+      try (PreparedStatement statement = con.prepareStatement(sql)) {
+        return function.apply(statement);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    } finally {
+      if (pooled) {
+        DbUtils.close(con);
       }
     }
   }
 
+  /**
+   * Checks if {@code table} has a row with {@code id} in {@code idField}, using a prepared query.
+   */
+  static boolean exists(Table<?> table, org.jooq.Field<Long> idField, long id) {
+    String sql = getPreparedQuery(table.getName() + ".exists." + idField.getName(),
+        ctx -> "SELECT 1 FROM " + ctx.render(table) + " WHERE " + ctx.render(idField) + " = ? LIMIT 1");
+    return usePreparedStatement(sql, statement -> {
+      statement.setLong(1, id);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next();
+      }
+    });
+  }
+
   static <V> Map<AtmKey, V> getCache(String tableName) {
     if (!isInTransaction()) {
       throw new IllegalStateException("Not in transaction");
@@ -248,6 +389,59 @@ public final class Db {
     return (Map<AtmKey, V>) transactionBatches.get().computeIfAbsent(tableName, k -> new HashMap<>());
   }
 
+  /**
+   * Registers how a table writes its batch, so that {@link #flushBatches()} and the commit don't lose it.
+   */
+  static void registerBatchFlush(String tableName, Runnable flush) {
+    if (!isInTransaction()) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    transactionBatchFlushes.get().putIfAbsent(tableName, flush);
+  }
+
+  /**
+   * Writes the batches registered in the current transaction. Queries that bypass the entity
+   * tables have to call this first to see the rows written in the current block.
+   */
+  public static void flushBatches() {
+    Map<String, Runnable> flushes = transactionBatchFlushes.get();
+    if (flushes == null || flushes.isEmpty()) {
+      return;
+    }
+    for (Runnable flush : new ArrayList<>(flushes.values())) {
+      flush.run();
+    }
+    flushes.clear();
+  }
+
+  /**
+   * Runs {@code hook} after the current transaction has been committed, e.g. to invalidate caches
+   * of committed data. Hooks of a rolled back transaction are dropped.
+   */
+  static void afterCommit(Runnable hook) {
+    if (!isInTransaction()) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    transactionCommitHooks.get().add(hook);
+  }
+
+  /**
+   * Runs {@code hook} if the current transaction, or a savepoint of it, is rolled back. Only the first
+   * hook registered under {@code key} in a transaction is kept.
+   */
+  static void onRollback(String key, Runnable hook) {
+    if (!isInTransaction()) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    transactionRollbackHooks.get().putIfAbsent(key, hook);
+  }
+
+  private static void runRollbackHooks() {
+    Map<String, Runnable> hooks = transactionRollbackHooks.get();
+    hooks.values().forEach(Runnable::run);
+    hooks.clear();
+  }
+
   public static boolean isInTransaction() {
     return localConnection.get() != null;
   }
@@ -261,8 +455,13 @@ public final class Db {
       con.setAutoCommit(false);
 
       localConnection.set(con);
+      localContext.set(DSL.using(con, dialect, getSettings()));
       transactionCaches.set(new HashMap<>());
       transactionBatches.set(new HashMap<>());
+      transactionBatchFlushes.set(new LinkedHashMap<>());
+      transactionCommitHooks.set(new ArrayList<>());
+      transactionRollbackHooks.set(new LinkedHashMap<>());
+      transactionStatements.set(new HashMap<>());
 
       return con;
     }
@@ -277,10 +476,15 @@ public final class Db {
       throw new IllegalStateException("Not in transaction");
     }
     try {
+      flushBatches();
       con.commit();
     } catch (SQLException e) {
         throw new RuntimeException(e.toString(), e);
     }
+    transactionRollbackHooks.get().clear();
+    List<Runnable> hooks = transactionCommitHooks.get();
+    hooks.forEach(Runnable::run);
+    hooks.clear();
   }
 
   public static void rollbackTransaction() {
@@ -296,7 +500,59 @@ public final class Db {
     }
     transactionCaches.get().clear();
     transactionBatches.get().clear();
-    dbCacheManager.flushCache();
+    transactionBatchFlushes.get().clear();
+    transactionCommitHooks.get().clear();
+    runRollbackHooks();
+    dbCacheManager.flushTransactionCache();
+  }
+
+  /**
+   * Marks the current state of the transaction, so that a later {@link #rollbackToSavepoint(Savepoint)}
+   * only discards the changes made after this point.
+   */
+  public static Savepoint setSavepoint() {
+    Connection con = localConnection.get();
+    if (con == null) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    try {
+      return con.setSavepoint();
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    }
+  }
+
+  public static void rollbackToSavepoint(Savepoint savepoint) {
+    Connection con = localConnection.get();
+    if (con == null) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    try {
+      con.rollback(savepoint);
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    }
+    // the caches may hold entities changed after the savepoint, reload them from the database
+    transactionCaches.get().clear();
+    transactionBatches.get().clear();
+    transactionBatchFlushes.get().clear();
+    runRollbackHooks();
+    dbCacheManager.flushTransactionCache();
+  }
+
+  public static void releaseSavepoint(Savepoint savepoint) {
+    Connection con = localConnection.get();
+    if (con == null) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    try {
+      con.releaseSavepoint(savepoint);
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    }
   }
 
   public static void endTransaction() {
@@ -305,10 +561,18 @@ public final class Db {
       throw new IllegalStateException("Not in transaction");
     }
     localConnection.set(null);
+    localContext.set(null);
     transactionCaches.get().clear();
     transactionCaches.set(null);
     transactionBatches.get().clear();
     transactionBatches.set(null);
+    transactionBatchFlushes.set(null);
+    transactionCommitHooks.set(null);
+    transactionRollbackHooks.set(null);
+    for (PreparedStatement statement : transactionStatements.get().values()) {
+      DbUtils.close(statement);
+    }
+    transactionStatements.set(null);
     DbUtils.close(con);
   }
 
@@ -3,11 +3,14 @@ package brs.db.sql;
 import brs.Atm;
 import brs.db.AtmKey;
 import brs.db.EntityTable;
+import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.DerivedTableManager;
+import org.ehcache.Cache;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.impl.TableImpl;
 
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -17,6 +20,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
   final DbKey.Factory<T> dbKeyFactory;
   private final boolean multiversion;
   private final List<SortField<?>> defaultSort;
+  private final ReadCache<AtmKey, T> readCache;
 
   final Field<Integer> heightField;
   final Field<Boolean> latestField;
@@ -25,10 +29,24 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
     this(table, tableClass, dbKeyFactory, false, derivedTableManager);
   }
 
+  EntitySqlTable(String table, TableImpl<?> tableClass, AtmKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
+    this(table, tableClass, dbKeyFactory, false, derivedTableManager, dbCacheManager);
+  }
+
   EntitySqlTable(String table, TableImpl<?> tableClass, AtmKey.Factory<T> dbKeyFactory, boolean multiversion, DerivedTableManager derivedTableManager) {
+    this(table, tableClass, dbKeyFactory, multiversion, derivedTableManager, null);
+  }
+
+  /**
+   * @param dbCacheManager provides the second-level cache for lookups by key outside of transactions, if one is configured for this table
+   */
+  @SuppressWarnings("unchecked")
+  EntitySqlTable(String table, TableImpl<?> tableClass, AtmKey.Factory<T> dbKeyFactory, boolean multiversion, DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
     super(table, tableClass, derivedTableManager);
     this.dbKeyFactory = (DbKey.Factory<T>) dbKeyFactory;
     this.multiversion = multiversion;
+    Cache<AtmKey, Object> cache = dbCacheManager == null ? null : dbCacheManager.getCache(table, AtmKey.class, Object.class);
+    this.readCache = cache == null ? null : new ReadCache<>((Cache<AtmKey, T>) (Cache<AtmKey, ?>) cache);
     this.defaultSort  = new ArrayList<>();
     this.heightField = tableClass.field("height", Integer.class);
     this.latestField = tableClass.field("latest", Boolean.class);
@@ -74,17 +92,44 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       if (t != null) {
         return t;
       }
+      return getLatest(dbKey);
     }
+    return readCache != null ? readCache.get(dbKey, () -> getLatest(dbKey)) : getLatest(dbKey);
+  }
+
+  private T getLatest(DbKey dbKey) {
     return Db.useDSLContext(ctx -> {
-      SelectQuery<Record> query = ctx.selectQuery();
-      query.addFrom(tableClass);
-      query.addConditions(dbKey.getPKConditions(tableClass));
-      if ( multiversion ) {
-        query.addConditions(latestField.isTrue());
-      }
-      query.addLimit(1);
+      // hit for every account, asset, order... touched by a block, so it skips building the query
+      Record record = Db.usePreparedStatement(getByKeySql(), statement -> {
+        long[] pkValues = dbKey.getPKValues();
+        for (int i = 0; i < pkValues.length; i++) {
+          statement.setLong(i + 1, pkValues[i]);
+        }
+        try (ResultSet resultSet = statement.executeQuery()) {
+          Result<Record> result = ctx.fetch(resultSet, tableClass.fields());
+          return result.isEmpty() ? null : result.get(0);
+        }
+      });
+      return get(ctx, record, true);
+    });
+  }
 
-      return get(ctx, query, true);
+  private String getByKeySql() {
+    return Db.getPreparedQuery(table + ".getByKey", ctx -> {
+      StringBuilder sql = new StringBuilder("SELECT ");
+      Field<?>[] fields = tableClass.fields();
+      for (int i = 0; i < fields.length; i++) {
+        sql.append(i > 0 ? ", " : "").append(ctx.render(fields[i]));
+      }
+      sql.append(" FROM ").append(ctx.render(tableClass)).append(" WHERE ");
+      String[] pkColumns = dbKeyFactory.getPKColumns();
+      for (int i = 0; i < pkColumns.length; i++) {
+        sql.append(i > 0 ? " AND " : "").append(ctx.render(tableClass.field(pkColumns[i]))).append(" = ?");
+      }
+      if (multiversion) {
+        sql.append(" AND ").append(ctx.render(latestField)).append(" = TRUE");
+      }
+      return sql.append(" LIMIT 1").toString();
     });
   }
 
@@ -159,8 +204,11 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
   }
 
   private T get(DSLContext ctx, SelectQuery<Record> query, boolean cache) {
+    return get(ctx, query.fetchOne(), cache);
+  }
+
+  private T get(DSLContext ctx, Record record, boolean cache) {
     final boolean doCache = cache && Db.isInTransaction();
-    Record record = query.fetchOne();
     if (record == null) return null;
     T t = null;
     DbKey dbKey = null;
@@ -341,13 +389,8 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       throw new IllegalStateException("Not in transaction");
     }
     DbKey dbKey = (DbKey) dbKeyFactory.newKey(t);
-    T cachedT = getCache().get(dbKey);
-    if (cachedT == null) {
-      Db.getCache(table).put(dbKey, t);
-    } else if (t != cachedT) { // not a bug
-      throw new IllegalStateException("Different instance found in Db cache, perhaps trying to save an object "
-                                      + "that was read outside the current transaction");
-    }
+    putInCache(dbKey, t);
+    invalidateReadCache(dbKey);
     Db.useDSLContext(ctx -> {
       if (multiversion) {
         UpdateQuery query = ctx.updateQuery(tableClass);
@@ -363,15 +406,39 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
     });
   }
 
+  void putInCache(DbKey dbKey, T t) {
+    T cachedT = getCache().get(dbKey);
+    if (cachedT == null) {
+      Db.getCache(table).put(dbKey, t);
+    } else if (t != cachedT) { // not a bug
+      throw new IllegalStateException("Different instance found in Db cache, perhaps trying to save an object "
+                                      + "that was read outside the current transaction");
+    }
+  }
+
+  void invalidateReadCache(DbKey dbKey) {
+    if (readCache != null) {
+      readCache.invalidateOnCommit(dbKey);
+    }
+  }
+
+  void clearReadCache() {
+    if (readCache != null) {
+      readCache.clearOnCommit();
+    }
+  }
+
   @Override
   public void rollback(int height) {
     super.rollback(height);
     Db.getCache(table).clear();
+    clearReadCache();
   }
 
   @Override
   public void truncate() {
     super.truncate();
     Db.getCache(table).clear();
+    clearReadCache();
   }
 }
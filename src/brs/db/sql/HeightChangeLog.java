@@ -0,0 +1,115 @@
+package brs.db.sql;
+
+import brs.Constants;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers which keys a versioned table wrote at each height, so that rollback and trim only have to
+ * look at those keys instead of scanning the whole table. The log only knows the writes of this process
+ * and is dropped when a transaction is rolled back, the lookups return null whenever it can't give a
+ * complete answer and the table has to be scanned instead.
+ */
+final class HeightChangeLog {
+
+  private static final int UNKNOWN = -1;
+
+  private final String table;
+  private final int retention;
+  private final NavigableMap<Integer, Set<DbKey>> keysByHeight = new TreeMap<>();
+  // every row at this height or above has been logged
+  private int completeFrom = Integer.MAX_VALUE;
+  // no key has more than one row below this height
+  private int trimmedTo = UNKNOWN;
+
+  HeightChangeLog(String table) {
+    // trimming runs every 1440 blocks, MAX_ROLLBACK blocks behind the chain
+    this(table, Constants.MAX_ROLLBACK + 2 * 1440);
+  }
+
+  HeightChangeLog(String table, int retention) {
+    this.table = table;
+    this.retention = retention;
+  }
+
+  synchronized void record(int height, DbKey dbKey) {
+    dropOnRollback();
+    if (completeFrom == Integer.MAX_VALUE) {
+      // the chain only grows from the height of the first write on
+      completeFrom = height;
+    }
+    keysByHeight.computeIfAbsent(height, h -> new HashSet<>()).add(dbKey);
+    int oldest = height - retention;
+    if (keysByHeight.firstKey() < oldest) {
+      keysByHeight.headMap(oldest).clear();
+      completeFrom = Math.max(completeFrom, oldest);
+    }
+  }
+
+  /**
+   * @return the keys that have rows above {@code height}, or null if the log doesn't know all of them
+   */
+  synchronized Set<DbKey> getKeysAbove(int height) {
+    if (completeFrom > height + 1) {
+      return null;
+    }
+    return collect(keysByHeight.tailMap(height, false).values());
+  }
+
+  synchronized void rolledBack(int height) {
+    dropOnRollback();
+    keysByHeight.tailMap(height, false).clear();
+    completeFrom = Math.min(completeFrom, height + 1);
+  }
+
+  /**
+   * @return the keys that may have more than one row below {@code height}, or null if the log doesn't know all of them
+   */
+  synchronized Set<DbKey> getKeysToTrim(int height) {
+    if (trimmedTo == UNKNOWN || completeFrom > trimmedTo) {
+      return null;
+    }
+    if (height <= trimmedTo) {
+      return new HashSet<>();
+    }
+    return collect(keysByHeight.subMap(trimmedTo, true, height, false).values());
+  }
+
+  synchronized void trimmed(int height) {
+    dropOnRollback();
+    trimmedTo = Math.max(trimmedTo, height);
+    keysByHeight.headMap(height).clear();
+    completeFrom = Math.max(completeFrom, height);
+  }
+
+  synchronized void truncated() {
+    dropOnRollback();
+    keysByHeight.clear();
+    completeFrom = 0;
+    trimmedTo = 0;
+  }
+
+  synchronized void reset() {
+    keysByHeight.clear();
+    completeFrom = Integer.MAX_VALUE;
+    trimmedTo = UNKNOWN;
+  }
+
+  private void dropOnRollback() {
+    if (Db.isInTransaction()) {
+      Db.onRollback("changeLog." + table, this::reset);
+    }
+  }
+
+  private static Set<DbKey> collect(Collection<Set<DbKey>> keySets) {
+    Set<DbKey> keys = new HashSet<>();
+    for (Set<DbKey> keySet : keySets) {
+      keys.addAll(keySet);
+    }
+    return keys;
+  }
+}
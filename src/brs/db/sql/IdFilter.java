@@ -0,0 +1,99 @@
+package brs.db.sql;
+
+import brs.util.LongBloomFilter;
+import brs.util.ThreadPool;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers "does the table have a row with this id" from memory for ids it doesn't have, only possible
+ * matches have to be checked in the database. The filter is built from the table in the background once
+ * the node has started, until then every lookup goes to the database. Ids of deleted rows stay in the
+ * filter, they just cost a database lookup again.
+ */
+final class IdFilter {
+
+  private static final Logger logger = LoggerFactory.getLogger(IdFilter.class);
+
+  // the filter is only rebuilt at the next start, leave room for the rows added until then
+  private static final long MIN_HEADROOM = 1 << 20;
+
+  private final Table<?> table;
+  private final Field<Long> idField;
+
+  private volatile LongBloomFilter filter;
+  private volatile boolean failed;
+  // ids added while the filter is being built
+  private List<Long> pending = new ArrayList<>();
+
+  IdFilter(Table<?> table, Field<Long> idField, ThreadPool threadPool) {
+    this.table = table;
+    this.idField = idField;
+    threadPool.runAfterStart(this::build);
+  }
+
+  boolean mightContain(long id) {
+    LongBloomFilter current = filter;
+    return current == null || current.mightContain(id);
+  }
+
+  /**
+   * Has to be called for every id written to the table, before the transaction is committed.
+   */
+  void add(long id) {
+    LongBloomFilter current = filter;
+    if (current != null) {
+      current.add(id);
+      return;
+    }
+    synchronized (this) {
+      if (filter != null) {
+        filter.add(id);
+      } else if (!failed) {
+        pending.add(id);
+      }
+    }
+  }
+
+  private void build() {
+    try {
+      long start = System.currentTimeMillis();
+      String countSql = Db.getPreparedQuery(table.getName() + ".count", ctx -> "SELECT COUNT(*) FROM " + ctx.render(table));
+      long count = Db.usePreparedStatement(countSql, statement -> {
+        try (ResultSet resultSet = statement.executeQuery()) {
+          return resultSet.next() ? resultSet.getLong(1) : 0L;
+        }
+      });
+      LongBloomFilter newFilter = new LongBloomFilter(count + Math.max(count / 2, MIN_HEADROOM));
+      String idsSql = Db.getPreparedQuery(table.getName() + ".ids." + idField.getName(),
+          ctx -> "SELECT " + ctx.render(idField) + " FROM " + ctx.render(table));
+      Db.usePreparedStatement(idsSql, statement -> {
+        statement.setFetchSize(10000);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            newFilter.add(resultSet.getLong(1));
+          }
+        }
+        return null;
+      });
+      synchronized (this) {
+        pending.forEach(newFilter::add);
+        pending = null;
+        filter = newFilter;
+      }
+      logger.info("Loaded {} ids of {} in {} ms", count, table.getName(), System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      logger.warn("Could not load the ids of {}, looking them up in the database", table.getName(), e);
+      synchronized (this) {
+        failed = true;
+        pending = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package brs.db.sql;
+
+import org.ehcache.Cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Second-level cache of committed entities, used for lookups outside of a transaction.
+ * Writers invalidate the keys they touched once their transaction is committed. A lookup
+ * that raced with such an invalidation drops what it cached, so the cache never keeps a
+ * value that was read before the commit.
+ */
+final class ReadCache<K, V> {
+
+  private final Cache<K, V> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  ReadCache(Cache<K, V> cache) {
+    this.cache = cache;
+  }
+
+  V get(K key, Supplier<V> loader) {
+    V value = cache.get(key);
+    if (value != null) {
+      return value;
+    }
+    long loadGeneration = generation.get();
+    value = loader.get();
+    if (value != null) {
+      cache.put(key, value);
+      if (generation.get() != loadGeneration) {
+        cache.remove(key);
+      }
+    }
+    return value;
+  }
+
+  void invalidate(K key) {
+    generation.incrementAndGet();
+    cache.remove(key);
+  }
+
+  void clear() {
+    generation.incrementAndGet();
+    cache.clear();
+  }
+
+  /**
+   * Invalidates {@code key} now and again when the current transaction is committed.
+   */
+  void invalidateOnCommit(K key) {
+    invalidate(key);
+    Db.afterCommit(() -> invalidate(key));
+  }
+
+  void clearOnCommit() {
+    clear();
+    Db.afterCommit(this::clear);
+  }
+}
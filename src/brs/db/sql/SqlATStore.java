@@ -6,6 +6,7 @@ import brs.at.AtApiHelper;
 import brs.at.AtConstants;
 import brs.db.AtmKey;
 import brs.db.VersionedEntityTable;
+import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.ATStore;
 import brs.db.store.DerivedTableManager;
 import brs.schema.tables.records.AtRecord;
@@ -39,7 +40,7 @@ public class SqlATStore implements ATStore {
 
   private final VersionedEntityTable<brs.at.AT.ATState> atStateTable;
 
-  public SqlATStore(DerivedTableManager derivedTableManager) {
+  public SqlATStore(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
     atTable = new VersionedEntitySqlTable<brs.at.AT>("at", brs.schema.Tables.AT, atDbKeyFactory, derivedTableManager) {
       @Override
       protected brs.at.AT load(DSLContext ctx, Record rs) {
@@ -47,8 +48,8 @@ public class SqlATStore implements ATStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, brs.at.AT at) {
-        saveAT(ctx, at);
+      protected Query getSaveQuery(DSLContext ctx, brs.at.AT at) {
+        return getSaveATQuery(ctx, at);
       }
 
       @Override
@@ -59,15 +60,15 @@ public class SqlATStore implements ATStore {
       }
     };
 
-    atStateTable = new VersionedEntitySqlTable<brs.at.AT.ATState>("at_state", brs.schema.Tables.AT_STATE, atStateDbKeyFactory, derivedTableManager) {
+    atStateTable = new VersionedEntitySqlTable<brs.at.AT.ATState>("at_state", brs.schema.Tables.AT_STATE, atStateDbKeyFactory, derivedTableManager, dbCacheManager) {
       @Override
       protected brs.at.AT.ATState load(DSLContext ctx, Record rs) {
         return new SqlATState(rs);
       }
 
       @Override
-      protected void save(DSLContext ctx, brs.at.AT.ATState atState) {
-        saveATState(ctx, atState);
+      protected Query getSaveQuery(DSLContext ctx, brs.at.AT.ATState atState) {
+        return getSaveATStateQuery(ctx, atState);
       }
 
       @Override
@@ -81,15 +82,14 @@ public class SqlATStore implements ATStore {
     };
   }
 
-  private void saveATState(DSLContext ctx, brs.at.AT.ATState atState) {
-    ctx.mergeInto(AT_STATE, AT_STATE.AT_ID, AT_STATE.STATE, AT_STATE.PREV_HEIGHT, AT_STATE.NEXT_HEIGHT, AT_STATE.SLEEP_BETWEEN, AT_STATE.PREV_BALANCE, AT_STATE.FREEZE_WHEN_SAME_BALANCE, AT_STATE.MIN_ACTIVATE_AMOUNT, AT_STATE.HEIGHT, AT_STATE.LATEST)
+  private Query getSaveATStateQuery(DSLContext ctx, brs.at.AT.ATState atState) {
+    return ctx.mergeInto(AT_STATE, AT_STATE.AT_ID, AT_STATE.STATE, AT_STATE.PREV_HEIGHT, AT_STATE.NEXT_HEIGHT, AT_STATE.SLEEP_BETWEEN, AT_STATE.PREV_BALANCE, AT_STATE.FREEZE_WHEN_SAME_BALANCE, AT_STATE.MIN_ACTIVATE_AMOUNT, AT_STATE.HEIGHT, AT_STATE.LATEST)
             .key(AT_STATE.AT_ID, AT_STATE.HEIGHT)
-            .values(atState.getATId(), brs.at.AT.compressState(atState.getState()), atState.getPrevHeight(), atState.getNextHeight(), atState.getSleepBetween(), atState.getPrevBalance(), atState.getFreezeWhenSameBalance(), atState.getMinActivationAmount(), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(atState.getATId(), brs.at.AT.compressState(atState.getState()), atState.getPrevHeight(), atState.getNextHeight(), atState.getSleepBetween(), atState.getPrevBalance(), atState.getFreezeWhenSameBalance(), atState.getMinActivationAmount(), Atm.getBlockchain().getHeight(), true);
   }
 
-  private void saveAT(DSLContext ctx, brs.at.AT at) {
-    ctx.insertInto(
+  private Query getSaveATQuery(DSLContext ctx, brs.at.AT at) {
+    return ctx.insertInto(
       AT,
       AT.ID, AT.CREATOR_ID, AT.NAME, AT.DESCRIPTION,
       AT.VERSION, AT.CSIZE, AT.DSIZE, AT.C_USER_STACK_BYTES,
@@ -100,11 +100,12 @@ public class SqlATStore implements ATStore {
       at.getVersion(), at.getcSize(), at.getdSize(), at.getcUserStackBytes(),
       at.getcCallStackBytes(), at.getCreationBlockHeight(),
       brs.at.AT.compressState(at.getApCodeBytes()), Atm.getBlockchain().getHeight()
-    ).execute();
+    );
   }
 
   @Override
   public boolean isATAccountId(Long id) {
+    Db.flushBatches();
     return Db.useDSLContext(ctx -> {
       return ctx.fetchExists(ctx.selectOne().from(AT).where(AT.ID.eq(id)).and(AT.LATEST.isTrue()));
     });
@@ -112,6 +113,7 @@ public class SqlATStore implements ATStore {
 
   @Override
   public List<Long> getOrderedATs() {
+    Db.flushBatches();
     return Db.useDSLContext(ctx -> {
       return ctx.selectFrom(
               AT.join(AT_STATE).on(AT.ID.eq(AT_STATE.AT_ID)).join(ACCOUNT).on(AT.ID.eq(ACCOUNT.ID))
@@ -140,6 +142,7 @@ public class SqlATStore implements ATStore {
 
   @Override
   public brs.at.AT getAT(Long id) {
+    Db.flushBatches();
     return Db.useDSLContext(ctx -> {
       Record record = ctx.select(AT.fields()).select(AT_STATE.fields()).from(AT.join(AT_STATE).on(AT.ID.eq(AT_STATE.AT_ID))).
               where(AT.LATEST.isTrue().
@@ -164,6 +167,7 @@ public class SqlATStore implements ATStore {
 
   @Override
   public List<Long> getATsIssuedBy(Long accountId) {
+    Db.flushBatches();
     return Db.useDSLContext(ctx -> {
       return ctx.selectFrom(AT).where(AT.LATEST.isTrue()).and(AT.CREATOR_ID.eq(accountId)).orderBy(AT.CREATION_HEIGHT.desc(), AT.ID.asc()).fetch().getValues(AT.ID);
     });
@@ -171,6 +175,7 @@ public class SqlATStore implements ATStore {
 
   @Override
   public Collection<Long> getAllATIds() {
+    Db.flushBatches();
     return Db.useDSLContext(ctx -> {
       return ctx.selectFrom(AT).where(AT.LATEST.isTrue()).fetch().getValues(AT.ID);
     });
@@ -4,10 +4,13 @@ import brs.Alias;
 import brs.Atm;
 import brs.db.AtmKey;
 import brs.db.VersionedEntityTable;
+import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.AliasStore;
 import brs.db.store.DerivedTableManager;
 import brs.util.Convert;
+import org.ehcache.Cache;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.SortField;
 
@@ -28,7 +31,8 @@ public class SqlAliasStore implements AliasStore {
       }
     };
 
-  public SqlAliasStore(DerivedTableManager derivedTableManager) {
+  public SqlAliasStore(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
+    aliasNameCache = dbCacheManager.getCache("alias_name", String.class, Long.class);
     offerTable = new VersionedEntitySqlTable<Alias.Offer>("alias_offer", ALIAS_OFFER, offerDbKeyFactory, derivedTableManager) {
       @Override
       protected Alias.Offer load(DSLContext ctx, Record record) {
@@ -36,20 +40,20 @@ public class SqlAliasStore implements AliasStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Alias.Offer offer) {
-        saveOffer(offer);
+      protected Query getSaveQuery(DSLContext ctx, Alias.Offer offer) {
+        return getSaveOfferQuery(ctx, offer);
       }
     };
 
-    aliasTable = new VersionedEntitySqlTable<Alias>("alias", brs.schema.Tables.ALIAS, aliasDbKeyFactory, derivedTableManager) {
+    aliasTable = new VersionedEntitySqlTable<Alias>("alias", brs.schema.Tables.ALIAS, aliasDbKeyFactory, derivedTableManager, dbCacheManager) {
       @Override
       protected Alias load(DSLContext ctx, Record record) {
         return new SqlAlias(record);
       }
 
       @Override
-      protected void save(DSLContext ctx, Alias alias) {
-        saveAlias(ctx, alias);
+      protected Query getSaveQuery(DSLContext ctx, Alias alias) {
+        return getSaveAliasQuery(ctx, alias);
       }
 
       @Override
@@ -90,12 +94,9 @@ public class SqlAliasStore implements AliasStore {
     }
   }
 
-  private void saveOffer(Alias.Offer offer) {
-    Db.useDSLContext(ctx -> {
-      ctx.insertInto(ALIAS_OFFER, ALIAS_OFFER.ID, ALIAS_OFFER.PRICE, ALIAS_OFFER.BUYER_ID, ALIAS_OFFER.HEIGHT)
-              .values(offer.getId(), offer.getPriceNQT(), (offer.getBuyerId() == 0 ? null : offer.getBuyerId()), Atm.getBlockchain().getHeight())
-              .execute();
-    });
+  private Query getSaveOfferQuery(DSLContext ctx, Alias.Offer offer) {
+    return ctx.insertInto(ALIAS_OFFER, ALIAS_OFFER.ID, ALIAS_OFFER.PRICE, ALIAS_OFFER.BUYER_ID, ALIAS_OFFER.HEIGHT)
+            .values(offer.getId(), offer.getPriceNQT(), (offer.getBuyerId() == 0 ? null : offer.getBuyerId()), Atm.getBlockchain().getHeight());
   }
 
   private final VersionedEntityTable<Alias.Offer> offerTable;
@@ -118,18 +119,19 @@ public class SqlAliasStore implements AliasStore {
     }
   }
 
-  private void saveAlias(DSLContext ctx, Alias alias) {
-    ctx.insertInto(ALIAS).
+  private Query getSaveAliasQuery(DSLContext ctx, Alias alias) {
+    return ctx.insertInto(ALIAS).
       set(ALIAS.ID, alias.getId()).
       set(ALIAS.ACCOUNT_ID, alias.getAccountId()).
       set(ALIAS.ALIAS_NAME, alias.getAliasName()).
       set(ALIAS.ALIAS_NAME_LOWER, alias.getAliasName().toLowerCase(Locale.ENGLISH)).
       set(ALIAS.ALIAS_URI, alias.getAliasURI()).
       set(ALIAS.TIMESTAMP, alias.getTimestamp()).
-      set(ALIAS.HEIGHT, Atm.getBlockchain().getHeight()).execute();
+      set(ALIAS.HEIGHT, Atm.getBlockchain().getHeight());
   }
 
   private final VersionedEntityTable<Alias> aliasTable;
+  private final Cache<String, Long> aliasNameCache;
 
   @Override
   public Collection<Alias> getAliasesByOwner(long accountId, int from, int to) {
@@ -138,7 +140,23 @@ public class SqlAliasStore implements AliasStore {
 
   @Override
   public Alias getAlias(String aliasName) {
-    return aliasTable.getBy(brs.schema.Tables.ALIAS.ALIAS_NAME_LOWER.eq(aliasName.toLowerCase(Locale.ENGLISH)));
+    String aliasNameLower = aliasName.toLowerCase(Locale.ENGLISH);
+    if (aliasNameCache == null || Db.isInTransaction()) {
+      return aliasTable.getBy(brs.schema.Tables.ALIAS.ALIAS_NAME_LOWER.eq(aliasNameLower));
+    }
+    // the id of a name never changes, an alias that was rolled back is simply not found by id anymore
+    Long id = aliasNameCache.get(aliasNameLower);
+    if (id != null) {
+      Alias alias = aliasTable.get(aliasDbKeyFactory.newKey(id));
+      if (alias != null) {
+        return alias;
+      }
+    }
+    Alias alias = aliasTable.getBy(brs.schema.Tables.ALIAS.ALIAS_NAME_LOWER.eq(aliasNameLower));
+    if (alias != null) {
+      aliasNameCache.put(aliasNameLower, alias.getId());
+    }
+    return alias;
   }
 
 }
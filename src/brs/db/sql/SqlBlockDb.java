@@ -5,6 +5,7 @@ import brs.Atm;
 import brs.AtmException;
 import brs.db.BlockDb;
 import brs.schema.tables.records.BlockRecord;
+import brs.util.ThreadPool;
 import org.jooq.DSLContext;
 import org.jooq.DeleteQuery;
 import org.jooq.Record;
@@ -25,6 +26,12 @@ public class SqlBlockDb implements BlockDb {
 
   private static final Logger logger = LoggerFactory.getLogger(BlockDb.class);
 
+  private final IdFilter idFilter;
+
+  public SqlBlockDb(ThreadPool threadPool) {
+    idFilter = new IdFilter(BLOCK, BLOCK.ID, threadPool);
+  }
+
   public Block findBlock(long blockId) {
     return Db.useDSLContext(ctx -> {
       try {
@@ -37,9 +44,7 @@ public class SqlBlockDb implements BlockDb {
   }
 
   public boolean hasBlock(long blockId) {
-    return Db.useDSLContext(ctx -> {
-      return ctx.fetchExists(ctx.selectOne().from(BLOCK).where(BLOCK.ID.eq(blockId)));
-    });
+    return idFilter.mightContain(blockId) && Db.exists(BLOCK, BLOCK.ID, blockId);
   }
 
   public long findBlockIdAtHeight(int height) {
@@ -112,6 +117,7 @@ public class SqlBlockDb implements BlockDb {
   }
 
   public void saveBlock(DSLContext ctx, Block block) {
+      idFilter.add(block.getId());
       ctx.insertInto(BLOCK, BLOCK.ID, BLOCK.VERSION, BLOCK.TIMESTAMP, BLOCK.PREVIOUS_BLOCK_ID,
               BLOCK.TOTAL_AMOUNT, BLOCK.TOTAL_FEE, BLOCK.PAYLOAD_LENGTH, BLOCK.GENERATOR_PUBLIC_KEY,
               BLOCK.PREVIOUS_BLOCK_HASH, BLOCK.CUMULATIVE_DIFFICULTY, BLOCK.BASE_TARGET, BLOCK.HEIGHT,
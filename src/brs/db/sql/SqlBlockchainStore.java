@@ -133,14 +133,17 @@ public class SqlBlockchainStore implements BlockchainStore {
         conditions.add(TRANSACTION.HEIGHT.le(height));
       }
 
-      SelectOrderByStep<TransactionRecord> select = ctx.selectFrom(TRANSACTION).where(conditions).and(
+      // each part reads the newest rows of the account from its (account, block_timestamp, id) index
+      // and stops after the requested page, instead of sorting the whole history of the account
+      int limit = to >= 0 && to >= from && to < Integer.MAX_VALUE ? to + 1 : 0;
+      SelectOrderByStep<TransactionRecord> select = newestFirst(ctx.selectFrom(TRANSACTION).where(conditions).and(
               TRANSACTION.RECIPIENT_ID.eq(account.getId()).and(
                       TRANSACTION.SENDER_ID.ne(account.getId())
               )
-      ).unionAll(
-              ctx.selectFrom(TRANSACTION).where(conditions).and(
+      ), limit).unionAll(
+              newestFirst(ctx.selectFrom(TRANSACTION).where(conditions).and(
                       TRANSACTION.SENDER_ID.eq(account.getId())
-              )
+              ), limit)
       );
 
       if (includeIndirectIncoming) {
@@ -159,6 +162,13 @@ public class SqlBlockchainStore implements BlockchainStore {
     });
   }
 
+  private static SelectUnionStep<TransactionRecord> newestFirst(SelectConditionStep<TransactionRecord> select, int limit) {
+    if (limit <= 0) {
+      return select;
+    }
+    return select.orderBy(TRANSACTION.BLOCK_TIMESTAMP.desc(), TRANSACTION.ID.desc()).limit(limit);
+  }
+
   @Override
   public Collection<Transaction> getTransactions(DSLContext ctx, Result<TransactionRecord> rs) {
     return rs.map(r -> {
@@ -170,6 +180,21 @@ public class SqlBlockchainStore implements BlockchainStore {
     });
   }
 
+  @Override
+  public Collection<Transaction> getTransactions(byte type, Collection<Byte> subtypes, int fromHeight, int toHeight) {
+    return Db.useDSLContext(ctx -> {
+      // there is no index on the height of the transactions, go through the blocks instead
+      return getTransactions(ctx, ctx.select(TRANSACTION.fields())
+              .from(BLOCK)
+              .join(TRANSACTION).on(TRANSACTION.BLOCK_ID.eq(BLOCK.ID))
+              .where(BLOCK.HEIGHT.between(fromHeight, toHeight))
+              .and(TRANSACTION.TYPE.eq(type))
+              .and(TRANSACTION.SUBTYPE.in(subtypes))
+              .orderBy(BLOCK.HEIGHT.asc(), TRANSACTION.ID.asc())
+              .fetchInto(TRANSACTION));
+    });
+  }
+
   @Override
   public void addBlock(Block block) {
     Db.useDSLContext(ctx -> {
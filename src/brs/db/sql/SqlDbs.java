@@ -4,6 +4,7 @@ import brs.db.BlockDb;
 import brs.db.PeerDb;
 import brs.db.TransactionDb;
 import brs.db.store.Dbs;
+import brs.util.ThreadPool;
 
 public class SqlDbs implements Dbs {
 
@@ -11,9 +12,9 @@ public class SqlDbs implements Dbs {
   private final TransactionDb transactionDb;
   private final PeerDb peerDb;
 
-  public SqlDbs() {
-    this.blockDb       = new SqlBlockDb();
-    this.transactionDb = new SqlTransactionDb();
+  public SqlDbs(ThreadPool threadPool) {
+    this.blockDb       = new SqlBlockDb(threadPool);
+    this.transactionDb = new SqlTransactionDb(threadPool);
     this.peerDb        = new SqlPeerDb();
   }
 
@@ -10,6 +10,7 @@ import brs.db.store.DerivedTableManager;
 import brs.db.store.DigitalGoodsStoreStore;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.SortField;
 
@@ -69,8 +70,8 @@ public class SqlDigitalGoodsStoreStore implements DigitalGoodsStoreStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, DigitalGoodsStore.Purchase purchase) {
-        savePurchase(ctx, purchase);
+      protected Query getSaveQuery(DSLContext ctx, DigitalGoodsStore.Purchase purchase) {
+        return getSavePurchaseQuery(ctx, purchase);
       }
 
       @Override
@@ -137,8 +138,8 @@ public class SqlDigitalGoodsStoreStore implements DigitalGoodsStoreStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, DigitalGoodsStore.Goods goods) {
-        saveGoods(ctx, goods);
+      protected Query getSaveQuery(DSLContext ctx, DigitalGoodsStore.Goods goods) {
+        return getSaveGoodsQuery(ctx, goods);
       }
 
       @Override
@@ -203,14 +204,13 @@ public class SqlDigitalGoodsStoreStore implements DigitalGoodsStoreStore {
     return goodsTable;
   }
 
-  private void saveGoods(DSLContext ctx, DigitalGoodsStore.Goods goods) {
-    ctx.mergeInto(GOODS, GOODS.ID, GOODS.SELLER_ID, GOODS.NAME, GOODS.DESCRIPTION, GOODS.TAGS, GOODS.TIMESTAMP, GOODS.QUANTITY, GOODS.PRICE, GOODS.DELISTED, GOODS.HEIGHT, GOODS.LATEST)
+  private Query getSaveGoodsQuery(DSLContext ctx, DigitalGoodsStore.Goods goods) {
+    return ctx.mergeInto(GOODS, GOODS.ID, GOODS.SELLER_ID, GOODS.NAME, GOODS.DESCRIPTION, GOODS.TAGS, GOODS.TIMESTAMP, GOODS.QUANTITY, GOODS.PRICE, GOODS.DELISTED, GOODS.HEIGHT, GOODS.LATEST)
             .key(GOODS.ID, GOODS.HEIGHT)
-            .values(goods.getId(), goods.getSellerId(), goods.getName(), goods.getDescription(), goods.getTags(), goods.getTimestamp(), goods.getQuantity(), goods.getPriceNQT(), goods.isDelisted(), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(goods.getId(), goods.getSellerId(), goods.getName(), goods.getDescription(), goods.getTags(), goods.getTimestamp(), goods.getQuantity(), goods.getPriceNQT(), goods.isDelisted(), Atm.getBlockchain().getHeight(), true);
   }
 
-  private void savePurchase(DSLContext ctx, DigitalGoodsStore.Purchase purchase) {
+  private Query getSavePurchaseQuery(DSLContext ctx, DigitalGoodsStore.Purchase purchase) {
     byte[] note        = null;
     byte[] nonce       = null;
     byte[] goods       = null;
@@ -229,10 +229,9 @@ public class SqlDigitalGoodsStoreStore implements DigitalGoodsStoreStore {
       refundNote  = purchase.getRefundNote().getData();
       refundNonce = purchase.getRefundNote().getNonce();
     }
-    ctx.mergeInto(PURCHASE, PURCHASE.ID, PURCHASE.BUYER_ID, PURCHASE.GOODS_ID, PURCHASE.SELLER_ID, PURCHASE.QUANTITY, PURCHASE.PRICE, PURCHASE.DEADLINE, PURCHASE.NOTE, PURCHASE.NONCE, PURCHASE.TIMESTAMP, PURCHASE.PENDING, PURCHASE.GOODS, PURCHASE.GOODS_NONCE, PURCHASE.REFUND_NOTE, PURCHASE.REFUND_NONCE, PURCHASE.HAS_FEEDBACK_NOTES, PURCHASE.HAS_PUBLIC_FEEDBACKS, PURCHASE.DISCOUNT, PURCHASE.REFUND, PURCHASE.HEIGHT, PURCHASE.LATEST)
+    return ctx.mergeInto(PURCHASE, PURCHASE.ID, PURCHASE.BUYER_ID, PURCHASE.GOODS_ID, PURCHASE.SELLER_ID, PURCHASE.QUANTITY, PURCHASE.PRICE, PURCHASE.DEADLINE, PURCHASE.NOTE, PURCHASE.NONCE, PURCHASE.TIMESTAMP, PURCHASE.PENDING, PURCHASE.GOODS, PURCHASE.GOODS_NONCE, PURCHASE.REFUND_NOTE, PURCHASE.REFUND_NONCE, PURCHASE.HAS_FEEDBACK_NOTES, PURCHASE.HAS_PUBLIC_FEEDBACKS, PURCHASE.DISCOUNT, PURCHASE.REFUND, PURCHASE.HEIGHT, PURCHASE.LATEST)
             .key(PURCHASE.ID, PURCHASE.HEIGHT)
-            .values(purchase.getId(), purchase.getBuyerId(), purchase.getGoodsId(), purchase.getSellerId(), purchase.getQuantity(), purchase.getPriceNQT(), purchase.getDeliveryDeadlineTimestamp(), note, nonce, purchase.getTimestamp(), purchase.isPending(), goods, goodsNonce, refundNote, refundNonce, purchase.getFeedbackNotes() != null && !purchase.getFeedbackNotes().isEmpty(), !purchase.getPublicFeedback().isEmpty(), purchase.getDiscountNQT(), purchase.getRefundNQT(), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(purchase.getId(), purchase.getBuyerId(), purchase.getGoodsId(), purchase.getSellerId(), purchase.getQuantity(), purchase.getPriceNQT(), purchase.getDeliveryDeadlineTimestamp(), note, nonce, purchase.getTimestamp(), purchase.isPending(), goods, goodsNonce, refundNote, refundNonce, purchase.getFeedbackNotes() != null && !purchase.getFeedbackNotes().isEmpty(), !purchase.getPublicFeedback().isEmpty(), purchase.getDiscountNQT(), purchase.getRefundNQT(), Atm.getBlockchain().getHeight(), true);
   }
 
   @Override
@@ -8,6 +8,7 @@ import brs.db.VersionedEntityTable;
 import brs.db.store.DerivedTableManager;
 import brs.db.store.EscrowStore;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 
 import java.util.ArrayList;
@@ -45,8 +46,8 @@ public class SqlEscrowStore implements EscrowStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Escrow escrow) {
-        saveEscrow(ctx, escrow);
+      protected Query getSaveQuery(DSLContext ctx, Escrow escrow) {
+        return getSaveEscrowQuery(ctx, escrow);
       }
     };
 
@@ -57,17 +58,16 @@ public class SqlEscrowStore implements EscrowStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Escrow.Decision decision) {
-        saveDecision(ctx, decision);
+      protected Query getSaveQuery(DSLContext ctx, Escrow.Decision decision) {
+        return getSaveDecisionQuery(ctx, decision);
       }
     };
   }
 
-  private void saveDecision(DSLContext ctx, Escrow.Decision decision) {
-    ctx.mergeInto(ESCROW_DECISION, ESCROW_DECISION.ESCROW_ID, ESCROW_DECISION.ACCOUNT_ID, ESCROW_DECISION.DECISION, ESCROW_DECISION.HEIGHT, ESCROW_DECISION.LATEST)
+  private Query getSaveDecisionQuery(DSLContext ctx, Escrow.Decision decision) {
+    return ctx.mergeInto(ESCROW_DECISION, ESCROW_DECISION.ESCROW_ID, ESCROW_DECISION.ACCOUNT_ID, ESCROW_DECISION.DECISION, ESCROW_DECISION.HEIGHT, ESCROW_DECISION.LATEST)
             .key(ESCROW_DECISION.ESCROW_ID, ESCROW_DECISION.ACCOUNT_ID, ESCROW_DECISION.HEIGHT)
-            .values(decision.escrowId, decision.accountId, (int) Escrow.decisionToByte(decision.getDecision()), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(decision.escrowId, decision.accountId, (int) Escrow.decisionToByte(decision.getDecision()), Atm.getBlockchain().getHeight(), true);
   }
 
   @Override
@@ -107,11 +107,10 @@ public class SqlEscrowStore implements EscrowStore {
     return resultTransactions;
   }
 
-  private void saveEscrow(DSLContext ctx, Escrow escrow) {
-    ctx.mergeInto(ESCROW, ESCROW.ID, ESCROW.SENDER_ID, ESCROW.RECIPIENT_ID, ESCROW.AMOUNT, ESCROW.REQUIRED_SIGNERS, ESCROW.DEADLINE, ESCROW.DEADLINE_ACTION, ESCROW.HEIGHT, ESCROW.LATEST)
+  private Query getSaveEscrowQuery(DSLContext ctx, Escrow escrow) {
+    return ctx.mergeInto(ESCROW, ESCROW.ID, ESCROW.SENDER_ID, ESCROW.RECIPIENT_ID, ESCROW.AMOUNT, ESCROW.REQUIRED_SIGNERS, ESCROW.DEADLINE, ESCROW.DEADLINE_ACTION, ESCROW.HEIGHT, ESCROW.LATEST)
             .key(ESCROW.ID, ESCROW.HEIGHT)
-            .values(escrow.id, escrow.senderId, escrow.recipientId, escrow.amountNQT, escrow.requiredSigners, escrow.deadline, (int) Escrow.decisionToByte(escrow.deadlineAction), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(escrow.id, escrow.senderId, escrow.recipientId, escrow.amountNQT, escrow.requiredSigners, escrow.deadline, (int) Escrow.decisionToByte(escrow.deadlineAction), Atm.getBlockchain().getHeight(), true);
   }
 
   private class SqlDecision extends Escrow.Decision {
@@ -6,27 +6,32 @@ import brs.db.store.IndirectIncomingStore;
 import org.jooq.DSLContext;
 import org.jooq.Query;
 import org.jooq.Record;
+import org.jooq.impl.DSL;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static brs.schema.Tables.INDIRECT_INCOMING;
 
 public class SqlIndirectIncomingStore implements IndirectIncomingStore {
 
+    private static final String TABLE = "indirect_incoming";
+
+    private final AtmKey.LinkKeyFactory<IndirectIncoming> indirectIncomingDbKeyFactory;
     private final EntitySqlTable<IndirectIncoming> indirectIncomingTable;
 
     public SqlIndirectIncomingStore(DerivedTableManager derivedTableManager) {
-        AtmKey.LinkKeyFactory<IndirectIncoming> indirectIncomingDbKeyFactory = new DbKey.LinkKeyFactory<IndirectIncoming>("account_id", "transaction_id") {
+        this.indirectIncomingDbKeyFactory = new DbKey.LinkKeyFactory<IndirectIncoming>("account_id", "transaction_id") {
             @Override
             public AtmKey newKey(IndirectIncoming indirectIncoming) {
                 return newKey(indirectIncoming.getAccountId(), indirectIncoming.getTransactionId());
             }
         };
 
-        this.indirectIncomingTable = new EntitySqlTable<IndirectIncoming>("indirect_incoming", INDIRECT_INCOMING, indirectIncomingDbKeyFactory, derivedTableManager) {
+        this.indirectIncomingTable = new EntitySqlTable<IndirectIncoming>(TABLE, INDIRECT_INCOMING, indirectIncomingDbKeyFactory, derivedTableManager) {
             @Override
             protected IndirectIncoming load(DSLContext ctx, Record rs) {
                 return new IndirectIncoming(rs.get(INDIRECT_INCOMING.ACCOUNT_ID), rs.get(INDIRECT_INCOMING.TRANSACTION_ID), rs.get(INDIRECT_INCOMING.HEIGHT));
@@ -51,18 +56,79 @@ public class SqlIndirectIncomingStore implements IndirectIncomingStore {
                 }
                 ctx.batch(queries).execute();
             }
+
+            @Override
+            public void finish() {
+                // a savepoint rolled back later in the group drops the batch, write it with its block
+                flushBatch();
+            }
+
+            @Override
+            public void rollback(int height) {
+                if (Db.isInTransaction()) {
+                    Db.<IndirectIncoming>getBatch(TABLE).values().removeIf(indirectIncoming -> indirectIncoming.getHeight() > height);
+                }
+                super.rollback(height);
+            }
+
+            @Override
+            public void truncate() {
+                if (Db.isInTransaction()) {
+                    Db.getBatch(TABLE).clear();
+                }
+                super.truncate();
+            }
         };
     }
 
+    /**
+     * Inside a transaction the rows are collected and written with a single batch when the
+     * transaction is committed, instead of one statement per multi-out transaction of the block.
+     */
     @Override
     public void addIndirectIncomings(Collection<IndirectIncoming> indirectIncomings) {
+        if (indirectIncomings.isEmpty()) {
+            return;
+        }
+        if (!Db.isInTransaction()) {
+            Db.useDSLContext(ctx -> {
+                indirectIncomingTable.save(ctx, indirectIncomings.toArray(new IndirectIncoming[0]));
+            });
+            return;
+        }
+        Db.registerBatchFlush(TABLE, this::flushBatch);
+        Map<AtmKey, IndirectIncoming> batch = Db.getBatch(TABLE);
+        for (IndirectIncoming indirectIncoming : indirectIncomings) {
+            batch.put(indirectIncomingDbKeyFactory.newKey(indirectIncoming), indirectIncoming);
+        }
+    }
+
+    private void flushBatch() {
+        if (!Db.isInTransaction()) {
+            return;
+        }
+        Map<AtmKey, IndirectIncoming> batch = Db.getBatch(TABLE);
+        if (batch.isEmpty()) {
+            return;
+        }
         Db.useDSLContext(ctx -> {
-            indirectIncomingTable.save(ctx, indirectIncomings.toArray(new IndirectIncoming[0]));
+            indirectIncomingTable.save(ctx, batch.values().toArray(new IndirectIncoming[0]));
+        });
+        batch.clear();
+    }
+
+    @Override
+    public int getLastHeight() {
+        flushBatch();
+        return Db.useDSLContext(ctx -> {
+            Integer height = ctx.select(DSL.max(INDIRECT_INCOMING.HEIGHT)).from(INDIRECT_INCOMING).fetchOne(0, Integer.class);
+            return height != null ? height : -1;
         });
     }
 
     @Override
     public List<Long> getIndirectIncomings(long accountId, int from, int to) {
+        flushBatch();
         return indirectIncomingTable.getManyBy(INDIRECT_INCOMING.ACCOUNT_ID.eq(accountId), from, to)
                 .stream()
                 .map(IndirectIncoming::getTransactionId)
@@ -4,11 +4,13 @@ import brs.Atm;
 import brs.Order;
 import brs.db.AtmKey;
 import brs.db.VersionedEntityTable;
+import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.DerivedTableManager;
 import brs.db.store.OrderStore;
 import brs.schema.tables.records.AskOrderRecord;
 import brs.schema.tables.records.BidOrderRecord;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.SelectQuery;
 import org.jooq.SortField;
@@ -40,16 +42,16 @@ public class SqlOrderStore implements OrderStore {
 
   };
 
-  public SqlOrderStore(DerivedTableManager derivedTableManager) {
-    askOrderTable = new VersionedEntitySqlTable<Order.Ask>("ask_order", ASK_ORDER, askOrderDbKeyFactory, derivedTableManager) {
+  public SqlOrderStore(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
+    askOrderTable = new VersionedEntitySqlTable<Order.Ask>("ask_order", ASK_ORDER, askOrderDbKeyFactory, derivedTableManager, dbCacheManager) {
       @Override
       protected Order.Ask load(DSLContext ctx, Record record) {
         return new SqlAsk(record);
       }
 
       @Override
-      protected void save(DSLContext ctx, Order.Ask ask) {
-        saveAsk(ctx, ask);
+      protected Query getSaveQuery(DSLContext ctx, Order.Ask ask) {
+        return getSaveAskQuery(ctx, ask);
       }
 
       @Override
@@ -60,7 +62,7 @@ public class SqlOrderStore implements OrderStore {
       }
     };
 
-    bidOrderTable = new VersionedEntitySqlTable<Order.Bid>("bid_order", BID_ORDER, bidOrderDbKeyFactory, derivedTableManager) {
+    bidOrderTable = new VersionedEntitySqlTable<Order.Bid>("bid_order", BID_ORDER, bidOrderDbKeyFactory, derivedTableManager, dbCacheManager) {
 
       @Override
       protected Order.Bid load(DSLContext ctx, Record rs) {
@@ -68,8 +70,8 @@ public class SqlOrderStore implements OrderStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Order.Bid bid) {
-        saveBid(ctx, bid);
+      protected Query getSaveQuery(DSLContext ctx, Order.Bid bid) {
+        return getSaveBidQuery(ctx, bid);
       }
 
       @Override
@@ -139,11 +141,10 @@ public class SqlOrderStore implements OrderStore {
     return askOrderTable.getManyBy(ASK_ORDER.ASSET_ID.eq(assetId), from, to);
   }
 
-  private void saveAsk(DSLContext ctx, Order.Ask ask) {
-    ctx.mergeInto(ASK_ORDER, ASK_ORDER.ID, ASK_ORDER.ACCOUNT_ID, ASK_ORDER.ASSET_ID, ASK_ORDER.PRICE, ASK_ORDER.QUANTITY, ASK_ORDER.CREATION_HEIGHT, ASK_ORDER.HEIGHT, ASK_ORDER.LATEST)
+  private Query getSaveAskQuery(DSLContext ctx, Order.Ask ask) {
+    return ctx.mergeInto(ASK_ORDER, ASK_ORDER.ID, ASK_ORDER.ACCOUNT_ID, ASK_ORDER.ASSET_ID, ASK_ORDER.PRICE, ASK_ORDER.QUANTITY, ASK_ORDER.CREATION_HEIGHT, ASK_ORDER.HEIGHT, ASK_ORDER.LATEST)
             .key(ASK_ORDER.ID, ASK_ORDER.HEIGHT)
-            .values(ask.getId(), ask.getAccountId(), ask.getAssetId(), ask.getPriceNQT(), ask.getQuantityQNT(), ask.getHeight(), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(ask.getId(), ask.getAccountId(), ask.getAssetId(), ask.getPriceNQT(), ask.getQuantityQNT(), ask.getHeight(), Atm.getBlockchain().getHeight(), true);
   }
 
   @Override
@@ -207,11 +208,10 @@ public class SqlOrderStore implements OrderStore {
     });
   }
 
-  private void saveBid(DSLContext ctx, Order.Bid bid) {
-    ctx.mergeInto(BID_ORDER, BID_ORDER.ID, BID_ORDER.ACCOUNT_ID, BID_ORDER.ASSET_ID, BID_ORDER.PRICE, BID_ORDER.QUANTITY, BID_ORDER.CREATION_HEIGHT, BID_ORDER.HEIGHT, BID_ORDER.LATEST)
+  private Query getSaveBidQuery(DSLContext ctx, Order.Bid bid) {
+    return ctx.mergeInto(BID_ORDER, BID_ORDER.ID, BID_ORDER.ACCOUNT_ID, BID_ORDER.ASSET_ID, BID_ORDER.PRICE, BID_ORDER.QUANTITY, BID_ORDER.CREATION_HEIGHT, BID_ORDER.HEIGHT, BID_ORDER.LATEST)
             .key(BID_ORDER.ID, BID_ORDER.HEIGHT)
-            .values(bid.getId(), bid.getAccountId(), bid.getAssetId(), bid.getPriceNQT(), bid.getQuantityQNT(), bid.getHeight(), Atm.getBlockchain().getHeight(), true)
-            .execute();
+            .values(bid.getId(), bid.getAccountId(), bid.getAssetId(), bid.getPriceNQT(), bid.getQuantityQNT(), bid.getHeight(), Atm.getBlockchain().getHeight(), true);
   }
 
   class SqlAsk extends Order.Ask {
@@ -7,6 +7,7 @@ import brs.TransactionType;
 import brs.db.TransactionDb;
 import brs.schema.tables.records.TransactionRecord;
 import brs.util.Convert;
+import brs.util.ThreadPool;
 import org.jooq.BatchBindStep;
 
 import java.nio.ByteBuffer;
@@ -18,6 +19,13 @@ import static brs.schema.Tables.TRANSACTION;
 
 public class SqlTransactionDb implements TransactionDb {
 
+  // called for every transaction of a block and every transaction relayed by peers, most of them are unknown
+  private final IdFilter idFilter;
+
+  public SqlTransactionDb(ThreadPool threadPool) {
+    idFilter = new IdFilter(TRANSACTION, TRANSACTION.ID, threadPool);
+  }
+
   @Override
   public Transaction findTransaction(long transactionId) {
     return Db.useDSLContext(ctx -> {
@@ -44,9 +52,7 @@ public class SqlTransactionDb implements TransactionDb {
 
   @Override
   public boolean hasTransaction(long transactionId) {
-    return Db.useDSLContext(ctx -> {
-      return ctx.fetchExists(ctx.selectFrom(TRANSACTION).where(TRANSACTION.ID.eq(transactionId)));
-    });
+    return idFilter.mightContain(transactionId) && Db.exists(TRANSACTION, TRANSACTION.ID, transactionId);
   }
 
   @Override
@@ -154,6 +160,7 @@ public class SqlTransactionDb implements TransactionDb {
                     null, null,
                     null, null, null, null, null, null, null, null, null, null, null));
         for (Transaction transaction : transactions) {
+          idFilter.add(transaction.getId());
           insertBatch.bind(
               transaction.getId(),
               transaction.getDeadline(),
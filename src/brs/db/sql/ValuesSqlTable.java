@@ -1,5 +1,6 @@
 package brs.db.sql;
 
+import brs.Atm;
 import brs.db.AtmKey;
 import brs.db.ValuesTable;
 import brs.db.store.DerivedTableManager;
@@ -14,6 +15,7 @@ public abstract class ValuesSqlTable<T,V> extends DerivedSqlTable implements Val
 
   private final boolean multiversion;
   final DbKey.Factory<T> dbKeyFactory;
+  final HeightChangeLog changeLog;
 
   protected ValuesSqlTable(String table, TableImpl<?> tableClass, DbKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager) {
     this(table, tableClass, dbKeyFactory, false, derivedTableManager);
@@ -23,6 +25,7 @@ public abstract class ValuesSqlTable<T,V> extends DerivedSqlTable implements Val
     super(table, tableClass, derivedTableManager);
     this.dbKeyFactory = dbKeyFactory;
     this.multiversion = multiversion;
+    this.changeLog = multiversion ? new HeightChangeLog(table) : null;
   }
 
   protected abstract V load(DSLContext ctx, Record record);
@@ -67,6 +70,7 @@ public abstract class ValuesSqlTable<T,V> extends DerivedSqlTable implements Val
                 .where(dbKey.getPKConditions(tableClass))
                 .and(latestField.isTrue())
                 .execute();
+        changeLog.record(Atm.getBlockchain().getHeight(), dbKey);
       }
       for (V v : values) {
         save(ctx, t, v);
@@ -84,5 +88,8 @@ public abstract class ValuesSqlTable<T,V> extends DerivedSqlTable implements Val
   public final void truncate() {
     super.truncate();
     Db.getCache(table).clear();
+    if (multiversion) {
+      changeLog.truncated();
+    }
   }
 }
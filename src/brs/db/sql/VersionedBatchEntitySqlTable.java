@@ -12,13 +12,12 @@ import java.util.*;
 
 public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySqlTable<T> implements VersionedBatchEntityTable<T> {
 
-  private final DBCacheManagerImpl dbCacheManager;
-  private final Class<T> tClass;
+  private final Cache<AtmKey, T> cache;
 
   VersionedBatchEntitySqlTable(String table, TableImpl<?> tableClass, DbKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager, Class<T> tClass) {
     super(table, tableClass, dbKeyFactory, derivedTableManager);
-    this.dbCacheManager = dbCacheManager;
-    this.tClass = tClass;
+    // looked up once, every balance change of a block goes through here
+    this.cache = dbCacheManager.getCache(table, tClass);
   }
   
   private void assertInTransaction() {
@@ -33,8 +32,6 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
     }
   }
 
-  protected abstract void bulkInsert(DSLContext ctx, Collection<T> t);
-
   @Override
   public boolean delete(T t) {
     assertNotInTransaction();
@@ -46,15 +43,21 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
 
   @Override
   public T get(AtmKey dbKey) {
-    if (getCache().containsKey(dbKey)) {
-      return getCache().get(dbKey);
+    T item;
+    if (Db.isInTransaction()) {
+      // the batch holds everything changed since the last flush, even if the cache evicted it
+      item = getBatch().get(dbKey);
+      if (item != null) {
+        return item;
+      }
     }
-    else if (Db.isInTransaction() && getBatch().containsKey(dbKey)) {
-      return getBatch().get(dbKey);
+    item = cache.get(dbKey);
+    if (item != null) {
+      return item;
     }
-    T item = super.get(dbKey);
+    item = super.get(dbKey);
     if (item != null) {
-      getCache().put(dbKey, item);
+      cache.put(dbKey, item);
     }
     return item;
   }
@@ -63,38 +66,21 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
   public void insert(T t) {
     assertNotInTransaction();
     AtmKey key = dbKeyFactory.newKey(t);
-    getBatch().put(key, t);
-    getCache().put(key, t);
+    // an entity changed several times in a block only needs to be put in the cache once
+    if (getBatch().put(key, t) != t) {
+      cache.put(key, t);
+    }
   }
 
   @Override
   public void finish() {
     assertNotInTransaction();
-    Set<AtmKey> keySet = getBatch().keySet();
-    if (keySet.isEmpty()) {
+    if (getBatch().isEmpty()) {
       return;
     }
 
     Db.useDSLContext(ctx -> {
-      UpdateQuery updateQuery = ctx.updateQuery(tableClass);
-      updateQuery.addValue(latestField, false);
-      for (String idColumn : dbKeyFactory.getPKColumns()) {
-        updateQuery.addConditions(tableClass.field(idColumn, Long.class).eq(0L));
-      }
-      updateQuery.addConditions(latestField.isTrue());
-
-      BatchBindStep updateBatch = ctx.batch(updateQuery);
-      for (AtmKey dbKey : keySet) {
-        List<Object> bindArgs = new ArrayList<>();
-        bindArgs.add(false);
-        for (long pkValue : dbKey.getPKValues()) {
-          bindArgs.add(pkValue);
-        }
-        updateBatch.bind(bindArgs.toArray());
-      }
-      updateBatch.execute();
-
-      bulkInsert(ctx, getBatch().values());
+      writeBatch(ctx, getBatch());
       getBatch().clear();
     });
   }
@@ -202,7 +188,7 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
 
   @Override
   public Cache<AtmKey, T> getCache() {
-    return dbCacheManager.getCache(table, tClass);
+    return cache;
   }
 
   @Override
@@ -3,26 +3,161 @@ package brs.db.sql;
 import brs.Atm;
 import brs.db.AtmKey;
 import brs.db.VersionedEntityTable;
+import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.DerivedTableManager;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.impl.TableImpl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> implements VersionedEntityTable<T> {
 
+  private static final String MAX_HEIGHT = "max_height";
+  private static final int KEY_CHUNK_SIZE = 500;
+
+  final HeightChangeLog changeLog = new HeightChangeLog(table);
+
   VersionedEntitySqlTable(String table, TableImpl<?> tableClass, AtmKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager) {
     super(table, tableClass, dbKeyFactory, true, derivedTableManager);
   }
 
+  VersionedEntitySqlTable(String table, TableImpl<?> tableClass, AtmKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
+    super(table, tableClass, dbKeyFactory, true, derivedTableManager, dbCacheManager);
+  }
+
+  /**
+   * The statement writing the current version of {@code t}. The versions written by a block
+   * are sent as one JDBC batch, see {@link #finish()}.
+   */
+  protected abstract Query getSaveQuery(DSLContext ctx, T t);
+
+  @Override
+  void save(DSLContext ctx, T t) {
+    getSaveQuery(ctx, t).execute();
+  }
+
+  @Override
+  public void insert(T t) {
+    if (!Db.isInTransaction()) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    DbKey dbKey = (DbKey) dbKeyFactory.newKey(t);
+    putInCache(dbKey, t);
+    invalidateReadCache(dbKey);
+    // the cache answers lookups by key until the row is written, a later version of the same key replaces it
+    Db.registerBatchFlush(table, this::flushBatch);
+    Db.<T>getBatch(table).put(dbKey, t);
+  }
+
+  @Override
+  public void finish() {
+    flushBatch();
+  }
+
+  private void flushBatch() {
+    if (!Db.isInTransaction()) {
+      return;
+    }
+    Map<AtmKey, T> batch = Db.getBatch(table);
+    if (batch.isEmpty()) {
+      return;
+    }
+    Db.useDSLContext(ctx -> {
+      writeBatch(ctx, batch);
+    });
+    batch.clear();
+  }
+
+  /**
+   * Clears the latest flag of the previous versions of the batched entities and writes the new ones.
+   */
+  void writeBatch(DSLContext ctx, Map<AtmKey, T> batch) {
+    int height = Atm.getBlockchain().getHeight();
+    UpdateQuery updateQuery = ctx.updateQuery(tableClass);
+    updateQuery.addValue(latestField, false);
+    for (String idColumn : dbKeyFactory.getPKColumns()) {
+      updateQuery.addConditions(tableClass.field(idColumn, Long.class).eq(0L));
+    }
+    updateQuery.addConditions(latestField.isTrue());
+
+    BatchBindStep updateBatch = ctx.batch(updateQuery);
+    List<Query> saveQueries = new ArrayList<>(batch.size());
+    for (Map.Entry<AtmKey, T> entry : batch.entrySet()) {
+      if (entry.getValue() == null) {
+        continue;
+      }
+      List<Object> bindArgs = new ArrayList<>();
+      bindArgs.add(false);
+      for (long pkValue : entry.getKey().getPKValues()) {
+        bindArgs.add(pkValue);
+      }
+      updateBatch.bind(bindArgs.toArray());
+      saveQueries.add(getSaveQuery(ctx, entry.getValue()));
+      changeLog.record(height, (DbKey) entry.getKey());
+    }
+    if (!saveQueries.isEmpty()) {
+      updateBatch.execute();
+      ctx.batch(saveQueries).execute();
+    }
+  }
+
+  @Override
+  public T get(AtmKey dbKey, int height) {
+    flushBatch();
+    return super.get(dbKey, height);
+  }
+
+  @Override
+  public T getBy(Condition condition) {
+    flushBatch();
+    return super.getBy(condition);
+  }
+
+  @Override
+  public T getBy(Condition condition, int height) {
+    flushBatch();
+    return super.getBy(condition, height);
+  }
+
+  @Override
+  public Collection<T> getManyBy(DSLContext ctx, SelectQuery<? extends Record> query, boolean cache) {
+    // all other queries for many entities end up here
+    flushBatch();
+    return super.getManyBy(ctx, query, cache);
+  }
+
+  @Override
+  public int getCount() {
+    flushBatch();
+    return super.getCount();
+  }
+
+  @Override
+  public int getRowCount() {
+    flushBatch();
+    return super.getRowCount();
+  }
+
   @Override
   public void rollback(int height) {
-    rollback(table, tableClass, heightField, latestField, height, dbKeyFactory);
+    rollback(table, tableClass, heightField, latestField, height, dbKeyFactory, changeLog);
+    Db.getBatch(table).clear();
+    clearReadCache();
   }
 
-  static void rollback(final String table, final TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, final int height, final DbKey.Factory<?> dbKeyFactory) {
+  @Override
+  public void truncate() {
+    super.truncate();
+    Db.getBatch(table).clear();
+    changeLog.truncated();
+  }
+
+  static void rollback(final String table, final TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, final int height, final DbKey.Factory<?> dbKeyFactory, HeightChangeLog changeLog) {
     if (!Db.isInTransaction()) {
       throw new IllegalStateException("Not in transaction");
     }
@@ -30,14 +165,17 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
     Db.useDSLContext(ctx -> {
       // get dbKey's for entries whose stuff newer than height would be deleted, to allow fixing
       // their latest flag of the "potential" remaining newest entry
-      SelectQuery<Record> selectForDeleteQuery = ctx.selectQuery();
-      selectForDeleteQuery.addFrom(tableClass);
-      selectForDeleteQuery.addConditions(heightField.gt(height));
-      for (String column : dbKeyFactory.getPKColumns()) {
-        selectForDeleteQuery.addSelect(tableClass.field(column, Long.class));
+      Collection<DbKey> dbKeys = changeLog.getKeysAbove(height);
+      if (dbKeys == null) {
+        SelectQuery<Record> selectForDeleteQuery = ctx.selectQuery();
+        selectForDeleteQuery.addFrom(tableClass);
+        selectForDeleteQuery.addConditions(heightField.gt(height));
+        for (String column : dbKeyFactory.getPKColumns()) {
+          selectForDeleteQuery.addSelect(tableClass.field(column, Long.class));
+        }
+        selectForDeleteQuery.setDistinct(true);
+        dbKeys = selectForDeleteQuery.fetch(r -> (DbKey) dbKeyFactory.newKey(r));
       }
-      selectForDeleteQuery.setDistinct(true);
-      List<DbKey> dbKeys = selectForDeleteQuery.fetch(r -> (DbKey) dbKeyFactory.newKey(r));
 
       // delete all entries > height
       DeleteQuery deleteQuery = ctx.deleteQuery(tableClass);
@@ -45,31 +183,40 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
       deleteQuery.execute();
 
       // update latest flags for remaining entries, if there any remaining (per deleted dbKey)
-      for (DbKey dbKey : dbKeys) {
-        SelectQuery<Record> selectMaxHeightQuery = ctx.selectQuery();
-        selectMaxHeightQuery.addFrom(tableClass);
-        selectMaxHeightQuery.addConditions(dbKey.getPKConditions(tableClass));
-        selectMaxHeightQuery.addSelect(DSL.max(heightField));
-        Integer maxHeight = selectMaxHeightQuery.fetchOne().get(DSL.max(heightField));
-
-        if (maxHeight != null) {
-          UpdateQuery setLatestQuery = ctx.updateQuery(tableClass);
-          setLatestQuery.addConditions(dbKey.getPKConditions(tableClass));
-          setLatestQuery.addConditions(heightField.eq(maxHeight));
-          setLatestQuery.addValue(latestField, true);
-          setLatestQuery.execute();
+      UpdateQuery setLatestQuery = ctx.updateQuery(tableClass);
+      setLatestQuery.addValue(latestField, true);
+      for (String column : dbKeyFactory.getPKColumns()) {
+        setLatestQuery.addConditions(tableClass.field(column, Long.class).eq(0L));
+      }
+      setLatestQuery.addConditions(heightField.eq(0));
+      BatchBindStep setLatestBatch = ctx.batch(setLatestQuery);
+
+      for (List<DbKey> chunk : chunks(dbKeys)) {
+        for (Record record : selectMaxHeights(ctx, tableClass, heightField, dbKeyFactory, keyCondition(tableClass, dbKeyFactory, chunk), Integer.MAX_VALUE).fetch()) {
+          List<Object> bindValues = new ArrayList<>();
+          bindValues.add(true);
+          for (long pkValue : ((DbKey) dbKeyFactory.newKey(record)).getPKValues()) {
+            bindValues.add(pkValue);
+          }
+          bindValues.add(record.get(MAX_HEIGHT, Integer.class));
+          setLatestBatch.bind(bindValues.toArray());
         }
       }
+      if (setLatestBatch.size() > 0) {
+        setLatestBatch.execute();
+      }
     });
+    changeLog.rolledBack(height);
     Db.getCache(table).clear();
   }
 
   @Override
   public final void trim(int height) {
-    trim(tableClass, heightField, height, dbKeyFactory);
+    flushBatch();
+    trim(tableClass, heightField, height, dbKeyFactory, changeLog);
   }
 
-  static void trim(final TableImpl<?> tableClass, Field<Integer> heightField, final int height, final DbKey.Factory dbKeyFactory) {
+  static void trim(final TableImpl<?> tableClass, Field<Integer> heightField, final int height, final DbKey.Factory dbKeyFactory, HeightChangeLog changeLog) {
     if (!Db.isInTransaction()) {
       throw new IllegalStateException("Not in transaction");
     }
@@ -77,17 +224,6 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
     // "accounts" is just an example to make it easier to understand what the code does
     // select all accounts with multiple entries where height < trimToHeight[current height - 1440]
     Db.useDSLContext(ctx -> {
-      SelectQuery<Record> selectMaxHeightQuery = ctx.selectQuery();
-      selectMaxHeightQuery.addFrom(tableClass);
-      selectMaxHeightQuery.addSelect(DSL.max(heightField).as("max_height"));
-      for (String column : dbKeyFactory.getPKColumns()) {
-        Field pkField = tableClass.field(column, Long.class);
-        selectMaxHeightQuery.addSelect(pkField);
-        selectMaxHeightQuery.addGroupBy(pkField);
-      }
-      selectMaxHeightQuery.addConditions(heightField.lt(height));
-      selectMaxHeightQuery.addHaving(DSL.countDistinct(heightField).gt(1));
-
       // delete all fetched accounts, except if it's height is the max height we figured out
       DeleteQuery deleteLowerHeightQuery = ctx.deleteQuery(tableClass);
       deleteLowerHeightQuery.addConditions(heightField.lt((Integer) null));
@@ -97,20 +233,84 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
       }
       BatchBindStep deleteBatch = ctx.batch(deleteLowerHeightQuery);
 
-      for (Record record : selectMaxHeightQuery.fetch()) {
-        DbKey dbKey = (DbKey) dbKeyFactory.newKey(record);
-        int maxHeight = record.get("max_height", Integer.class);
-        List<Long> bindValues = new ArrayList<>();
-        bindValues.add((long) maxHeight);
-        for (Long pkValue : dbKey.getPKValues()) {
-          bindValues.add(pkValue);
+      // only the keys written since the last trim can have gained another old entry
+      Set<DbKey> dbKeys = changeLog.getKeysToTrim(height);
+      List<Condition> conditions = new ArrayList<>();
+      if (dbKeys == null) {
+        conditions.add(DSL.noCondition());
+      } else {
+        for (List<DbKey> chunk : chunks(dbKeys)) {
+          conditions.add(keyCondition(tableClass, dbKeyFactory, chunk));
+        }
+      }
+
+      for (Condition condition : conditions) {
+        SelectQuery<Record> selectMaxHeightQuery = selectMaxHeights(ctx, tableClass, heightField, dbKeyFactory, condition, height);
+        selectMaxHeightQuery.addHaving(DSL.countDistinct(heightField).gt(1));
+        for (Record record : selectMaxHeightQuery.fetch()) {
+          DbKey dbKey = (DbKey) dbKeyFactory.newKey(record);
+          int maxHeight = record.get(MAX_HEIGHT, Integer.class);
+          List<Long> bindValues = new ArrayList<>();
+          bindValues.add((long) maxHeight);
+          for (Long pkValue : dbKey.getPKValues()) {
+            bindValues.add(pkValue);
+          }
+          deleteBatch.bind(bindValues.toArray());
         }
-        deleteBatch.bind(bindValues.toArray());
       }
       if (deleteBatch.size() > 0) {
         deleteBatch.execute();
       }
     });
+    changeLog.trimmed(height);
+  }
+
+  /**
+   * Selects the highest height below {@code belowHeight} per key matching {@code condition}.
+   */
+  private static SelectQuery<Record> selectMaxHeights(DSLContext ctx, TableImpl<?> tableClass, Field<Integer> heightField, DbKey.Factory<?> dbKeyFactory, Condition condition, int belowHeight) {
+    SelectQuery<Record> selectMaxHeightQuery = ctx.selectQuery();
+    selectMaxHeightQuery.addFrom(tableClass);
+    selectMaxHeightQuery.addSelect(DSL.max(heightField).as(MAX_HEIGHT));
+    for (String column : dbKeyFactory.getPKColumns()) {
+      Field<Long> pkField = tableClass.field(column, Long.class);
+      selectMaxHeightQuery.addSelect(pkField);
+      selectMaxHeightQuery.addGroupBy(pkField);
+    }
+    selectMaxHeightQuery.addConditions(condition);
+    if (belowHeight != Integer.MAX_VALUE) {
+      selectMaxHeightQuery.addConditions(heightField.lt(belowHeight));
+    }
+    return selectMaxHeightQuery;
+  }
+
+  private static Condition keyCondition(TableImpl<?> tableClass, DbKey.Factory<?> dbKeyFactory, List<DbKey> dbKeys) {
+    String[] pkColumns = dbKeyFactory.getPKColumns();
+    if (pkColumns.length == 1) {
+      List<Long> ids = new ArrayList<>(dbKeys.size());
+      for (DbKey dbKey : dbKeys) {
+        ids.add(dbKey.getPKValues()[0]);
+      }
+      return tableClass.field(pkColumns[0], Long.class).in(ids);
+    }
+    List<Condition> conditions = new ArrayList<>(dbKeys.size());
+    for (DbKey dbKey : dbKeys) {
+      conditions.add(DSL.and(dbKey.getPKConditions(tableClass)));
+    }
+    return DSL.or(conditions);
+  }
+
+  private static List<List<DbKey>> chunks(Collection<DbKey> dbKeys) {
+    List<List<DbKey>> chunks = new ArrayList<>();
+    List<DbKey> chunk = null;
+    for (DbKey dbKey : dbKeys) {
+      if (chunk == null || chunk.size() == KEY_CHUNK_SIZE) {
+        chunk = new ArrayList<>(KEY_CHUNK_SIZE);
+        chunks.add(chunk);
+      }
+      chunk.add(dbKey);
+    }
+    return chunks;
   }
 
   @Override
@@ -121,6 +321,7 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
     if (!Db.isInTransaction()) {
       throw new IllegalStateException("Not in transaction");
     }
+    flushBatch();
     DbKey dbKey = (DbKey) dbKeyFactory.newKey(t);
     return Db.useDSLContext(ctx -> {
       try {
@@ -139,6 +340,7 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
 
           updateQuery.execute();
           save(ctx, t);
+          changeLog.record(Atm.getBlockchain().getHeight(), dbKey);
           // delete after the save
           updateQuery.execute();
 
@@ -150,6 +352,7 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
         }
       } finally {
         Db.getCache(table).remove(dbKey);
+        invalidateReadCache(dbKey);
       }
     });
   }
@@ -36,6 +36,11 @@ public interface BlockchainStore {
 
   Collection<Transaction> getTransactions(DSLContext ctx, Result<TransactionRecord> rs);
 
+  /**
+   * @return the transactions of the given type and subtypes in the blocks from {@code fromHeight} to {@code toHeight}
+   */
+  Collection<Transaction> getTransactions(byte type, Collection<Byte> subtypes, int fromHeight, int toHeight);
+
   void addBlock(Block block);
 
   Collection<Block> getLatestBlocks(int amountBlocks);
@@ -5,6 +5,10 @@ import java.util.List;
 
 public interface IndirectIncomingStore {
     void addIndirectIncomings(Collection<IndirectIncoming> indirectIncomings);
+    /**
+     * @return the height of the newest indirect incoming, or -1 if there are none
+     */
+    int getLastHeight();
     List<Long> getIndirectIncomings(long accountId, int from, int to);
 
     class IndirectIncoming {
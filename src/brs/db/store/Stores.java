@@ -1,6 +1,5 @@
 package brs.db.store;
 
-import brs.db.TransactionDb;
 import brs.db.cache.DBCacheManagerImpl;
 import brs.db.sql.*;
 import brs.props.PropertyService;
@@ -8,6 +7,8 @@ import brs.services.TimeService;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStoreImpl;
 
+import java.sql.Savepoint;
+
 public class Stores {
   private final AccountStore accountStore;
   private final AliasStore aliasStore;
@@ -23,18 +24,18 @@ public class Stores {
   private final UnconfirmedTransactionStore unconfirmedTransactionStore;
   private final IndirectIncomingStore indirectIncomingStore;
 
-  public Stores(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager, TimeService timeService, PropertyService propertyService, TransactionDb transactionDb) {
+  public Stores(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager, TimeService timeService, PropertyService propertyService) {
     this.accountStore                = new SqlAccountStore(derivedTableManager, dbCacheManager);
-    this.aliasStore                  = new SqlAliasStore(derivedTableManager);
-    this.assetStore                  = new SqlAssetStore(derivedTableManager);
+    this.aliasStore                  = new SqlAliasStore(derivedTableManager, dbCacheManager);
+    this.assetStore                  = new SqlAssetStore(derivedTableManager, dbCacheManager);
     this.assetTransferStore          = new SqlAssetTransferStore(derivedTableManager);
-    this.atStore                     = new SqlATStore(derivedTableManager);
+    this.atStore                     = new SqlATStore(derivedTableManager, dbCacheManager);
     this.digitalGoodsStoreStore      = new SqlDigitalGoodsStoreStore(derivedTableManager);
     this.escrowStore                 = new SqlEscrowStore(derivedTableManager);
-    this.orderStore                  = new SqlOrderStore(derivedTableManager);
+    this.orderStore                  = new SqlOrderStore(derivedTableManager, dbCacheManager);
     this.tradeStore                  = new SqlTradeStore(derivedTableManager);
     this.subscriptionStore           = new SqlSubscriptionStore(derivedTableManager);
-    this.unconfirmedTransactionStore = new UnconfirmedTransactionStoreImpl(timeService, propertyService, accountStore, transactionDb);
+    this.unconfirmedTransactionStore = new UnconfirmedTransactionStoreImpl(timeService, propertyService, accountStore);
     this.indirectIncomingStore       = new SqlIndirectIncomingStore(derivedTableManager);
     this.blockchainStore             = new SqlBlockchainStore(indirectIncomingStore);
   }
@@ -79,6 +80,22 @@ public class Stores {
     Db.rollbackTransaction();
   }
 
+  public boolean isInTransaction() {
+    return Db.isInTransaction();
+  }
+
+  public Savepoint setSavepoint() {
+    return Db.setSavepoint();
+  }
+
+  public void rollbackToSavepoint(Savepoint savepoint) {
+    Db.rollbackToSavepoint(savepoint);
+  }
+
+  public void releaseSavepoint(Savepoint savepoint) {
+    Db.releaseSavepoint(savepoint);
+  }
+
   public void endTransaction() {
     Db.endTransaction();
   }
@@ -11,6 +11,13 @@ public interface GrpcApiHandler<R extends Message, S extends Message> {
      */
     S handleRequest(R request) throws Exception;
 
+    /**
+     * Handlers that change something return true, their queries always go to the main database.
+     */
+    default boolean changesState() {
+        return false;
+    }
+
     default void handleRequest(R request, StreamObserver<S> responseObserver) {
         try {
             responseObserver.onNext(handleRequest(request));
@@ -19,4 +19,9 @@ public class BroadcastTransactionBytesHandler implements GrpcApiHandler<BrsApi.T
                 .setNumberOfPeersSentTo(transactionProcessor.broadcast(Transaction.parseTransaction(transactionBytes.getTransactionBytes().toByteArray())))
                 .build();
     }
+
+    @Override
+    public boolean changesState() {
+        return true;
+    }
 }
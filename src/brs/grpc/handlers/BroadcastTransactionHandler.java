@@ -22,4 +22,9 @@ public class BroadcastTransactionHandler implements GrpcApiHandler<BrsApi.BasicT
                 .setNumberOfPeersSentTo(transactionProcessor.broadcast(ProtoBuilder.parseBasicTransaction(blockchain, basicTransaction)))
                 .build();
     }
+
+    @Override
+    public boolean changesState() {
+        return true;
+    }
 }
@@ -113,4 +113,9 @@ public class SubmitNonceHandler implements GrpcApiHandler<BrsApi.SubmitNonceRequ
             throw new ApiException("Passphrase is for a different account");
         }
     }
+
+    @Override
+    public boolean changesState() {
+        return true;
+    }
 }
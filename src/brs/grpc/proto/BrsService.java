@@ -5,6 +5,7 @@ import brs.BlockchainProcessor;
 import brs.Generator;
 import brs.TransactionProcessor;
 import brs.assetexchange.AssetExchange;
+import brs.db.sql.Db;
 import brs.feesuggestions.FeeSuggestionCalculator;
 import brs.fluxcapacitor.FluxCapacitor;
 import brs.grpc.GrpcApiHandler;
@@ -91,7 +92,14 @@ public class BrsService extends BrsApiServiceGrpc.BrsApiServiceImplBase {
         GrpcApiHandler<? extends Message, ? extends Message> handler = handlers.get(handlerClass);
         if (handlerClass != null && handlerClass.isInstance(handler)) {
             H handlerInstance = handlerClass.cast(handler);
-            handlerInstance.handleRequest(request, response);
+            if (!handlerInstance.changesState()) {
+                Db.beginReplicaReads();
+            }
+            try {
+                handlerInstance.handleRequest(request, response);
+            } finally {
+                Db.endReplicaReads();
+            }
         } else {
             response.onError(ProtoBuilder.buildError(new HandlerNotFoundException("H not registered: " + handlerClass)));
         }
@@ -2,6 +2,7 @@ package brs.http;
 
 import brs.*;
 import brs.assetexchange.AssetExchange;
+import brs.db.sql.Db;
 import brs.deeplink.DeeplinkQRCodeGenerator;
 import brs.feesuggestions.FeeSuggestionCalculator;
 import brs.props.PropertyService;
@@ -307,6 +308,10 @@ public final class APIServlet extends HttpServlet {
       return;
     }
 
+    // requests that change something read from the main database, the others may use the read replica
+    if (!apiRequestHandler.requirePost()) {
+      Db.beginReplicaReads();
+    }
     try {
       if (!acceptSurplusParams) apiRequestHandler.validateParams(req);
       apiRequestHandler.processRequest(req, resp);
@@ -316,6 +321,8 @@ public final class APIServlet extends HttpServlet {
       logger.debug("Error processing API request", e);
       resp.setStatus(HttpStatus.INTERNAL_SERVER_ERROR_500);
       writeJsonToResponse(resp, ERROR_INCORRECT_REQUEST);
+    } finally {
+      Db.endReplicaReads();
     }
   }
 }
@@ -13,7 +13,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-final class GetNextBlocks implements PeerServlet.PeerRequestHandler {
+final class GetNextBlocks implements PeerServlet.BinaryPeerRequestHandler {
 
   private final Blockchain blockchain;
 
@@ -27,6 +27,21 @@ final class GetNextBlocks implements PeerServlet.PeerRequestHandler {
 
     JsonObject response = new JsonObject();
 
+    JsonArray nextBlocksArray = new JsonArray();
+    for (Block nextBlock : getNextBlocks(request)) {
+      nextBlocksArray.add(nextBlock.getJsonObject());
+    }
+    response.add("nextBlocks", nextBlocksArray);
+
+    return response;
+  }
+
+  @Override
+  public byte[] processBinaryRequest(JsonObject request, Peer peer) {
+    return Block.toBinaryFrame(getNextBlocks(request));
+  }
+
+  private List<Block> getNextBlocks(JsonObject request) {
     List<Block> nextBlocks = new ArrayList<>();
     int totalLength = 0;
     long blockId = Convert.parseUnsignedLong(JSON.getAsString(request.get("blockId")));
@@ -40,14 +55,7 @@ final class GetNextBlocks implements PeerServlet.PeerRequestHandler {
       nextBlocks.add(block);
       totalLength += length;
     }
-
-    JsonArray nextBlocksArray = new JsonArray();
-    for (Block nextBlock : nextBlocks) {
-      nextBlocksArray.add(nextBlock.getJsonObject());
-    }
-    response.add("nextBlocks", nextBlocksArray);
-
-    return response;
+    return nextBlocks;
   }
 
 }
@@ -95,6 +95,14 @@ public interface Peer extends Comparable<Peer> {
 
   JsonObject send(JsonElement request);
 
+  /**
+   * Sends a request prepared with {@link brs.util.JSON#prepareBinaryRequest} and returns the raw binary response,
+   * or null if the peer failed or answered with JSON instead.
+   */
+  byte[] sendBinary(JsonElement request);
+
+  boolean supportsBinaryBlocks();
+
   static boolean isHigherOrEqualVersion(Version ourVersion, Version possiblyLowerVersion) {
     if (ourVersion == null || possiblyLowerVersion == null) {
       return false;
@@ -40,6 +40,7 @@ final class PeerImpl implements Peer {
   private final AtomicLong downloadedVolume = new AtomicLong();
   private final AtomicLong uploadedVolume = new AtomicLong();
   private final AtomicInteger lastUpdated = new AtomicInteger();
+  private final AtomicBoolean binaryUnsupported = new AtomicBoolean(false);
   private byte[] lastDownloadedTransactionsDigest;
   private final Object lastDownloadedTransactionsLock = new Object();
 
@@ -303,15 +304,7 @@ final class PeerImpl implements Peer {
 
     try {
 
-      String address = announcedAddress.get() != null ? announcedAddress.get() : peerAddress;
-      StringBuilder buf = new StringBuilder(Constants.HTTP);
-      buf.append(address);
-      if (port.get() <= 0) {
-        buf.append(':');
-        buf.append(Atm.getPropertyService().getBoolean(Props.DEV_TESTNET) ? Peers.TESTNET_PEER_PORT : Peers.DEFAULT_PEER_PORT);
-      }
-      buf.append("/ATM");
-      URL url = new URL(buf.toString());
+      URL url = getUrl();
 
       if (Peers.communicationLoggingMask != 0) {
         StringWriter stringWriter = new StringWriter();
@@ -319,20 +312,7 @@ final class PeerImpl implements Peer {
         log = "\"" + url.toString() + "\": " + stringWriter.toString();
       }
 
-      connection = (HttpURLConnection)url.openConnection();
-      connection.setRequestMethod("POST");
-      connection.setDoOutput(true);
-      connection.setConnectTimeout(Peers.connectTimeout);
-      connection.setReadTimeout(Peers.readTimeout);
-      connection.addRequestProperty("User-Agent", "BRS/" + Atm.VERSION.toString());
-      connection.setRequestProperty("Accept-Encoding", "gzip");
-      connection.setRequestProperty("Connection", "close");
-
-      CountingOutputStream cos = new CountingOutputStream(connection.getOutputStream());
-      try (Writer writer = new BufferedWriter(new OutputStreamWriter(cos, StandardCharsets.UTF_8))) {
-        JSON.writeTo(request, writer);
-      } // rico666: no catch?
-      updateUploadedVolume(cos.getCount());
+      connection = post(url, request);
 
       if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
         CountingInputStream cis = new CountingInputStream(connection.getInputStream());
@@ -405,6 +385,95 @@ final class PeerImpl implements Peer {
 
   }
 
+  @Override
+  public byte[] sendBinary(final JsonElement request) {
+    HttpURLConnection connection = null;
+    try {
+      connection = post(getUrl(), request);
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        if (state.get() == State.CONNECTED) {
+          setState(State.DISCONNECTED);
+        } else {
+          setState(State.NON_CONNECTED);
+        }
+        return null;
+      }
+      CountingInputStream cis = new CountingInputStream(connection.getInputStream());
+      InputStream responseStream = cis;
+      if ("gzip".equals(connection.getHeaderField("Content-Encoding"))) {
+        responseStream = new GZIPInputStream(cis);
+      }
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int numberOfBytes;
+      try (InputStream inputStream = responseStream) {
+        while ((numberOfBytes = inputStream.read(buffer, 0, buffer.length)) > 0) {
+          byteArrayOutputStream.write(buffer, 0, numberOfBytes);
+        }
+      }
+      updateDownloadedVolume(cis.getCount());
+
+      String contentType = connection.getContentType();
+      if (contentType == null || !contentType.startsWith(PeerServlet.BINARY_CONTENT_TYPE)) {
+        // older peers answer with a JSON error, remember that so we don't ask again
+        JsonObject response = JSON.getAsJsonObject(JSON.parse(byteArrayOutputStream.toString("UTF-8")));
+        if (response != null && JSON.getAsString(response.get("error")) != null
+                && JSON.getAsString(response.get("error")).startsWith("Unsupported protocol")) {
+          binaryUnsupported.set(true);
+        }
+        return null;
+      }
+      return byteArrayOutputStream.toByteArray();
+    } catch (RuntimeException|IOException e) {
+      if (!isConnectionException(e)) {
+        logger.debug("Error sending binary request", e);
+      }
+      if (state.get() == State.CONNECTED) {
+        setState(State.DISCONNECTED);
+      }
+      return null;
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsBinaryBlocks() {
+    return !binaryUnsupported.get();
+  }
+
+  private URL getUrl() throws MalformedURLException {
+    String address = announcedAddress.get() != null ? announcedAddress.get() : peerAddress;
+    StringBuilder buf = new StringBuilder(Constants.HTTP);
+    buf.append(address);
+    if (port.get() <= 0) {
+      buf.append(':');
+      buf.append(Atm.getPropertyService().getBoolean(Props.DEV_TESTNET) ? Peers.TESTNET_PEER_PORT : Peers.DEFAULT_PEER_PORT);
+    }
+    buf.append("/ATM");
+    return new URL(buf.toString());
+  }
+
+  private HttpURLConnection post(URL url, JsonElement request) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setConnectTimeout(Peers.connectTimeout);
+    connection.setReadTimeout(Peers.readTimeout);
+    connection.addRequestProperty("User-Agent", "BRS/" + Atm.VERSION.toString());
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+    connection.setRequestProperty("Connection", "close");
+
+    CountingOutputStream cos = new CountingOutputStream(connection.getOutputStream());
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(cos, StandardCharsets.UTF_8))) {
+      JSON.writeTo(request, writer);
+    } // rico666: no catch?
+    updateUploadedVolume(cos.getCount());
+    return connection;
+  }
+
   private boolean isConnectionException(Throwable e) {
     if (e instanceof UnknownHostException || e instanceof SocketTimeoutException || e instanceof SocketException) return true;
     if (e.getCause() == null) return false;
@@ -30,10 +30,19 @@ public final class PeerServlet extends HttpServlet {
 
   private static final Logger logger = LoggerFactory.getLogger(PeerServlet.class);
 
+  static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
   interface PeerRequestHandler {
     JsonElement processRequest(JsonObject request, Peer peer);
   }
 
+  /**
+   * Handler that can answer with a binary response when the request was sent with protocol "B2".
+   */
+  interface BinaryPeerRequestHandler extends PeerRequestHandler {
+    byte[] processBinaryRequest(JsonObject request, Peer peer);
+  }
+
   abstract static class ExtendedPeerRequestHandler implements PeerRequestHandler {
     @Override
     public JsonElement processRequest(JsonObject request, Peer peer) { return null; }
@@ -111,7 +120,8 @@ public final class PeerServlet extends HttpServlet {
 
   private void process(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     Peer peer = null;
-    JsonElement response;
+    JsonElement response = null;
+    byte[] binaryResponse = null;
 
     ExtendedProcessRequest extendedProcessRequest = null;
 
@@ -139,11 +149,14 @@ public final class PeerServlet extends HttpServlet {
       }
       peer.updateDownloadedVolume(cis.getCount());
 
-      if (request.get(PROTOCOL) != null && JSON.getAsString(request.get(PROTOCOL)).equals("B1")) {
+      String protocol = JSON.getAsString(request.get(PROTOCOL));
+      if ("B1".equals(protocol) || "B2".equals(protocol)) {
         requestType = "" + JSON.getAsString(request.get("requestType"));
         PeerRequestHandler peerRequestHandler = peerRequestHandlers.get(JSON.getAsString(request.get("requestType")));
         if (peerRequestHandler != null) {
-          if(peerRequestHandler instanceof ExtendedPeerRequestHandler) {
+          if ("B2".equals(protocol) && peerRequestHandler instanceof BinaryPeerRequestHandler) {
+            binaryResponse = ((BinaryPeerRequestHandler) peerRequestHandler).processBinaryRequest(request, peer);
+          } else if(peerRequestHandler instanceof ExtendedPeerRequestHandler) {
             extendedProcessRequest = ((ExtendedPeerRequestHandler) peerRequestHandler).extendedProcessRequest(request, peer);
             response = extendedProcessRequest.response;
           } else {
@@ -168,13 +181,19 @@ public final class PeerServlet extends HttpServlet {
       response = json;
     }
 
-    resp.setContentType("text/plain; charset=UTF-8");
+    resp.setContentType(binaryResponse != null ? BINARY_CONTENT_TYPE : "text/plain; charset=UTF-8");
     try {
       long byteCount;
 
       CountingOutputStream cos = new CountingOutputStream(resp.getOutputStream());
-      try (Writer writer = new OutputStreamWriter(cos, StandardCharsets.UTF_8)) {
-        JSON.writeTo(response, writer);
+      if (binaryResponse != null) {
+        try (OutputStream outputStream = cos) {
+          outputStream.write(binaryResponse);
+        }
+      } else {
+        try (Writer writer = new OutputStreamWriter(cos, StandardCharsets.UTF_8)) {
+          JSON.writeTo(response, writer);
+        }
       }
       byteCount = cos.getCount();
       if (peer != null) {
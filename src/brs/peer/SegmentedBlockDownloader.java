@@ -0,0 +1,274 @@
+package brs.peer;
+
+import brs.util.Convert;
+import brs.util.JSON;
+import brs.util.ThreadPool;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Downloads consecutive height ranges of the chain from several connected peers at once.
+ * The primary peer (the one we found the common milestone block with) always gets the first
+ * segment, further segments go to the fastest other peers. Results are returned in height
+ * order and stop at the first gap, so the caller can stitch them onto the download cache.
+ */
+public final class SegmentedBlockDownloader {
+
+  private static final Logger logger = LoggerFactory.getLogger(SegmentedBlockDownloader.class);
+
+  private static final long EVICTION_TIME_MS = 60000;
+  private static final int SLOW_PEER_FACTOR = 4;
+
+  private final ExecutorService downloadService = Executors.newCachedThreadPool();
+  private final Map<Peer, PeerThroughput> throughputs = new ConcurrentHashMap<>();
+  private final Map<Peer, Long> evictedPeers = new ConcurrentHashMap<>();
+
+  private final int maxPeers;
+  private final int segmentSize;
+
+  public SegmentedBlockDownloader(int maxPeers, int segmentSize) {
+    this.maxPeers = Math.max(maxPeers, 1);
+    this.segmentSize = Math.min(Math.max(segmentSize, 1), 1400);
+  }
+
+  public void shutdown(ThreadPool threadPool) {
+    threadPool.shutdownExecutor(downloadService);
+  }
+
+  /**
+   * Blocks downloaded from one peer, either as JSON or as a binary frame (see {@link brs.Block#toBinaryFrame}).
+   */
+  public static final class Segment {
+    private final Peer peer;
+    private final int fromHeight;
+    private final JsonArray blocks;
+    private final byte[] binaryFrame;
+
+    Segment(Peer peer, int fromHeight, JsonArray blocks, byte[] binaryFrame) {
+      this.peer = peer;
+      this.fromHeight = fromHeight;
+      this.blocks = blocks;
+      this.binaryFrame = binaryFrame;
+    }
+
+    public Peer getPeer() {
+      return peer;
+    }
+
+    /** Height of the block the first block in this segment builds upon */
+    public int getFromHeight() {
+      return fromHeight;
+    }
+
+    /** The blocks as JSON, or null if the segment was sent as a binary frame */
+    public JsonArray getBlocks() {
+      return blocks;
+    }
+
+    public byte[] getBinaryFrame() {
+      return binaryFrame;
+    }
+
+    public int getBlockCount() {
+      return binaryFrame != null ? ByteBuffer.wrap(binaryFrame).getInt() : blocks.size();
+    }
+  }
+
+  private static final class PeerThroughput {
+    private double bytesPerMs;
+    private int failures;
+
+    synchronized void update(long bytes, long millis) {
+      double sample = (double) bytes / Math.max(millis, 1);
+      bytesPerMs = bytesPerMs == 0 ? sample : 0.7 * bytesPerMs + 0.3 * sample;
+      failures = 0;
+    }
+
+    synchronized int fail() {
+      return ++failures;
+    }
+
+    synchronized double get() {
+      return bytesPerMs;
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxPeers > 1;
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Fetches the blocks following {@code fromHeight} up to {@code toHeight} in segments.
+   * @return the contiguous segments that were downloaded successfully, in height order
+   */
+  public List<Segment> download(Peer primary, int fromHeight, int toHeight) throws InterruptedException {
+    int segmentCount = (int) Math.min(maxPeers, Math.max(1, ((long) toHeight - fromHeight + segmentSize - 1) / segmentSize));
+    List<Peer> peers = selectPeers(primary, segmentCount);
+
+    List<Future<Segment>> futures = new ArrayList<>(peers.size());
+    for (int i = 0; i < peers.size(); i++) {
+      Peer peer = peers.get(i);
+      int segmentFrom = fromHeight + i * segmentSize;
+      futures.add(downloadService.submit(() -> fetchSegment(peer, segmentFrom)));
+    }
+
+    List<Segment> segments = new ArrayList<>(peers.size());
+    boolean complete = true;
+    for (int i = 0; i < futures.size(); i++) {
+      int segmentFrom = fromHeight + i * segmentSize;
+      Segment segment = null;
+      if (complete) {
+        try {
+          segment = futures.get(i).get();
+        } catch (ExecutionException e) {
+          logger.debug("Error downloading segment from {}", peers.get(i).getPeerAddress(), e.getCause());
+        }
+        if (segment == null && peers.get(i) != primary) {
+          // give the segment to our primary peer instead
+          segment = fetchSegment(primary, segmentFrom);
+        }
+        if (segment == null || segment.getBlockCount() <= 0) {
+          complete = false;
+        } else {
+          segments.add(segment);
+          if (segment.getBlockCount() < segmentSize) {
+            // peer does not know more blocks, later segments can't link up
+            complete = false;
+          }
+        }
+      }
+      if (!complete) {
+        futures.get(i).cancel(true);
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Evicts a peer from segment scheduling, e.g. because its blocks did not fit in the chain.
+   */
+  public void evict(Peer peer) {
+    evictedPeers.put(peer, System.currentTimeMillis() + EVICTION_TIME_MS);
+  }
+
+  private List<Peer> selectPeers(Peer primary, int count) {
+    List<Peer> selected = new ArrayList<>(count);
+    selected.add(primary);
+    if (count <= 1) {
+      return selected;
+    }
+    long now = System.currentTimeMillis();
+    evictedPeers.values().removeIf(until -> until < now);
+    throughputs.keySet().removeIf(peer -> peer.getState() != Peer.State.CONNECTED);
+
+    List<Peer> candidates = new ArrayList<>();
+    for (Peer peer : Peers.getPeers(Peer.State.CONNECTED)) {
+      if (peer != primary && !peer.isBlacklisted() && !evictedPeers.containsKey(peer)) {
+        candidates.add(peer);
+      }
+    }
+    // unknown peers get a chance too, the shuffle keeps them from always landing in the same spot
+    Collections.shuffle(candidates);
+    candidates.sort(Comparator.comparingDouble((Peer peer) -> getThroughput(peer)).reversed());
+    for (Peer peer : candidates) {
+      if (selected.size() >= count) {
+        break;
+      }
+      selected.add(peer);
+    }
+    return selected;
+  }
+
+  private double getThroughput(Peer peer) {
+    PeerThroughput throughput = throughputs.get(peer);
+    return throughput == null ? 0 : throughput.get();
+  }
+
+  /**
+   * Requests the blocks following {@code blockId} from a single peer, preferring the binary format.
+   */
+  public Segment getNextBlocks(Peer peer, long blockId, int fromHeight) {
+    JsonObject request = new JsonObject();
+    request.addProperty("requestType", "getNextBlocks");
+    request.addProperty("blockId", Convert.toUnsignedLong(blockId));
+    if (logger.isDebugEnabled()) {
+      logger.debug("Getting next Blocks after {} from {}", blockId, peer.getPeerAddress());
+    }
+    Segment segment = send(peer, request, fromHeight);
+    if (segment == null) {
+      return null;
+    }
+    // prevent overloading with blocks
+    if (segment.getBlockCount() > 1440) {
+      peer.blacklist("obsolete or rogue peer sends too many nextBlocks");
+      return null;
+    }
+    logger.debug("Got {} blocks after {} from {}", segment.getBlockCount(), blockId, peer.getPeerAddress());
+    return segment;
+  }
+
+  private Segment fetchSegment(Peer peer, int segmentFrom) {
+    JsonObject request = new JsonObject();
+    request.addProperty("requestType", "getBlocksFromHeight");
+    request.addProperty("height", segmentFrom);
+    request.addProperty("numBlocks", segmentSize);
+
+    long startVolume = peer.getDownloadedVolume();
+    long startTime = System.currentTimeMillis();
+    Segment segment = send(peer, request, segmentFrom);
+    long elapsed = System.currentTimeMillis() - startTime;
+
+    PeerThroughput throughput = throughputs.computeIfAbsent(peer, p -> new PeerThroughput());
+    if (segment == null || segment.getBlockCount() > segmentSize) {
+      if (throughput.fail() > 1) {
+        evict(peer);
+      }
+      return null;
+    }
+    throughput.update(peer.getDownloadedVolume() - startVolume, elapsed);
+    evictIfSlow(peer, throughput.get());
+    if (logger.isDebugEnabled()) {
+      logger.debug("Got {} blocks after height {} from {} in {} ms", segment.getBlockCount(), segmentFrom, peer.getPeerAddress(), elapsed);
+    }
+    return segment;
+  }
+
+  private Segment send(Peer peer, JsonObject request, int fromHeight) {
+    if (peer.supportsBinaryBlocks()) {
+      byte[] binaryFrame = peer.sendBinary(JSON.prepareBinaryRequest(request));
+      if (binaryFrame != null && binaryFrame.length >= 4) {
+        return new Segment(peer, fromHeight, null, binaryFrame);
+      }
+      // an old peer or a transient error, either way JSON gets one more try before the segment fails
+    }
+    JsonObject response = peer.send(JSON.prepareRequest(request));
+    JsonArray nextBlocks = response == null ? null : JSON.getAsJsonArray(response.get("nextBlocks"));
+    return nextBlocks == null ? null : new Segment(peer, fromHeight, nextBlocks, null);
+  }
+
+  private void evictIfSlow(Peer peer, double bytesPerMs) {
+    double total = 0;
+    int count = 0;
+    for (PeerThroughput throughput : throughputs.values()) {
+      double value = throughput.get();
+      if (value > 0) {
+        total += value;
+        count++;
+      }
+    }
+    if (count > 1 && bytesPerMs * SLOW_PEER_FACTOR < total / count) {
+      logger.debug("Evicting slow peer {} from block download", peer.getPeerAddress());
+      evict(peer);
+    }
+  }
+}
@@ -60,10 +60,25 @@ public class Props {
   public static final Prop<String> DB_USERNAME     = new Prop<>("DB.Username", "");
   public static final Prop<String> DB_PASSWORD     = new Prop<>("DB.Password", "");
   public static final Prop<Integer> DB_CONNECTIONS  = new Prop<>("DB.Connections", 30);
+  public static final Prop<String> DB_READ_URL      = new Prop<>("DB.ReadUrl", "");
+  public static final Prop<String> DB_READ_USERNAME = new Prop<>("DB.ReadUsername", "");
+  public static final Prop<String> DB_READ_PASSWORD = new Prop<>("DB.ReadPassword", "");
+  public static final Prop<Integer> DB_READ_CONNECTIONS = new Prop<>("DB.ReadConnections", 10);
   public static final Prop<Integer> DB_LOCK_TIMEOUT = new Prop<>("DB.LockTimeout", 60);
 
   public static final Prop<Boolean> DB_TRIM_DERIVED_TABLES = new Prop<>("DB.trimDerivedTables", true);
+  public static final Prop<Boolean> DB_TRIM_IN_BACKGROUND  = new Prop<>("DB.trimInBackground", true);
+  public static final Prop<Integer> DB_TRIM_MAX_MILLIS_PER_RUN = new Prop<>("DB.trimMaxMillisPerRun", 100);
   public static final Prop<Integer> DB_MAX_ROLLBACK        = new Prop<>("DB.maxRollback", 1440);
+  public static final Prop<Integer> DB_BULK_SYNC_BLOCKS     = new Prop<>("DB.bulkSyncBlocks", 0);
+  public static final Prop<Integer> DB_BULK_SYNC_MIN_AGE    = new Prop<>("DB.bulkSyncMinAge", 86400);
+
+  public static final Prop<Integer> DB_CACHE_ACCOUNT          = new Prop<>("DB.cache.account", 8192);
+  public static final Prop<Integer> DB_CACHE_ASSET            = new Prop<>("DB.cache.asset", 1024);
+  public static final Prop<Integer> DB_CACHE_ALIAS            = new Prop<>("DB.cache.alias", 4096);
+  public static final Prop<Integer> DB_CACHE_AT_STATE         = new Prop<>("DB.cache.atState", 1024);
+  public static final Prop<Integer> DB_CACHE_REWARD_RECIPIENT = new Prop<>("DB.cache.rewardRecipient", 4096);
+  public static final Prop<Integer> DB_CACHE_ORDER            = new Prop<>("DB.cache.order", 4096);
 
   public static final Prop<Boolean> BRS_TEST_UNCONFIRMED_TRANSACTIONS = new Prop<>("brs.testUnconfirmedTransactions", false);
 
@@ -71,6 +86,7 @@ public class Props {
 
 
   public static final Prop<Integer> BRS_BLOCK_CACHE_MB = new Prop<>("brs.blockCacheMB", 40);
+  public static final Prop<Integer> BRS_IMPORT_PIPELINE_DEPTH = new Prop<>("brs.importPipelineDepth", 32);
 
   // P2P options
 
@@ -104,6 +120,9 @@ public class Props {
 
   public static final Prop<Integer> P2P_MAX_UNCONFIRMED_TRANSACTIONS_RAW_SIZE_BYTES_TO_SEND = new Prop<>("P2P.maxUTRawSizeBytesToSend", 175000);
 
+  public static final Prop<Integer> P2P_PARALLEL_DOWNLOAD_PEERS = new Prop<>("P2P.parallelDownloadPeers", 4);
+  public static final Prop<Integer> P2P_PARALLEL_DOWNLOAD_SEGMENT_SIZE = new Prop<>("P2P.parallelDownloadSegmentSize", 100);
+
   // API options
   public static final Prop<Boolean> API_DEBUG   = new Prop<>("API.Debug", false);
   public static final Prop<Boolean> API_SSL     = new Prop<>("API.SSL", false);
@@ -164,6 +183,7 @@ public class Props {
   public static final Prop<String> JETTY_P2P_DOS_FILTER_MANAGED_ATTR = new Prop<>("JETTY.P2P.DoSFilter.managedAttr", "true");
 
   public static final Prop<Boolean> INDIRECT_INCOMING_SERVICE_ENABLE = new Prop<>("IndirectIncomingService.Enable", true);
+  public static final Prop<Boolean> INDIRECT_INCOMING_SERVICE_ASYNC = new Prop<>("IndirectIncomingService.Async", false);
 
   public static final Prop<Boolean> AUTO_POP_OFF_ENABLED = new Prop<>("AutoPopOff.Enable", true);
 
@@ -66,7 +66,7 @@ public class Indexes {
     public static final Index BID_ORDER_BID_ORDER_CREATION_IDX = Indexes0.BID_ORDER_BID_ORDER_CREATION_IDX;
     public static final Index BID_ORDER_BID_ORDER_ID_HEIGHT_IDX = Indexes0.BID_ORDER_BID_ORDER_ID_HEIGHT_IDX;
     public static final Index BID_ORDER_PRIMARY = Indexes0.BID_ORDER_PRIMARY;
-    public static final Index BLOCK_BLOCK_GENERATOR_ID_IDX = Indexes0.BLOCK_BLOCK_GENERATOR_ID_IDX;
+    public static final Index BLOCK_BLOCK_GENERATOR_ID_HEIGHT_IDX = Indexes0.BLOCK_BLOCK_GENERATOR_ID_HEIGHT_IDX;
     public static final Index BLOCK_BLOCK_HEIGHT_IDX = Indexes0.BLOCK_BLOCK_HEIGHT_IDX;
     public static final Index BLOCK_BLOCK_ID_IDX = Indexes0.BLOCK_BLOCK_ID_IDX;
     public static final Index BLOCK_BLOCK_TIMESTAMP_IDX = Indexes0.BLOCK_BLOCK_TIMESTAMP_IDX;
@@ -119,8 +119,8 @@ public class Indexes {
     public static final Index TRANSACTION_TRANSACTION_FULL_HASH_IDX = Indexes0.TRANSACTION_TRANSACTION_FULL_HASH_IDX;
     public static final Index TRANSACTION_TRANSACTION_ID_IDX = Indexes0.TRANSACTION_TRANSACTION_ID_IDX;
     public static final Index TRANSACTION_TRANSACTION_RECIPIENT_ID_AMOUNT_HEIGHT_IDX = Indexes0.TRANSACTION_TRANSACTION_RECIPIENT_ID_AMOUNT_HEIGHT_IDX;
-    public static final Index TRANSACTION_TRANSACTION_RECIPIENT_ID_IDX = Indexes0.TRANSACTION_TRANSACTION_RECIPIENT_ID_IDX;
-    public static final Index TRANSACTION_TRANSACTION_SENDER_ID_IDX = Indexes0.TRANSACTION_TRANSACTION_SENDER_ID_IDX;
+    public static final Index TRANSACTION_TRANSACTION_RECIPIENT_ID_BLOCK_TIMESTAMP_IDX = Indexes0.TRANSACTION_TRANSACTION_RECIPIENT_ID_BLOCK_TIMESTAMP_IDX;
+    public static final Index TRANSACTION_TRANSACTION_SENDER_ID_BLOCK_TIMESTAMP_IDX = Indexes0.TRANSACTION_TRANSACTION_SENDER_ID_BLOCK_TIMESTAMP_IDX;
     public static final Index UNCONFIRMED_TRANSACTION_PRIMARY = Indexes0.UNCONFIRMED_TRANSACTION_PRIMARY;
     public static final Index UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_HEIGHT_FEE_TIMESTAMP_IDX = Indexes0.UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_HEIGHT_FEE_TIMESTAMP_IDX;
     public static final Index UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_ID_IDX = Indexes0.UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_ID_IDX;
@@ -167,7 +167,7 @@ public class Indexes {
         public static Index BID_ORDER_BID_ORDER_CREATION_IDX = Internal.createIndex("bid_order_creation_idx", BidOrder.BID_ORDER, new OrderField[] { BidOrder.BID_ORDER.CREATION_HEIGHT }, false);
         public static Index BID_ORDER_BID_ORDER_ID_HEIGHT_IDX = Internal.createIndex("bid_order_id_height_idx", BidOrder.BID_ORDER, new OrderField[] { BidOrder.BID_ORDER.ID, BidOrder.BID_ORDER.HEIGHT }, true);
         public static Index BID_ORDER_PRIMARY = Internal.createIndex("PRIMARY", BidOrder.BID_ORDER, new OrderField[] { BidOrder.BID_ORDER.DB_ID }, true);
-        public static Index BLOCK_BLOCK_GENERATOR_ID_IDX = Internal.createIndex("block_generator_id_idx", Block.BLOCK, new OrderField[] { Block.BLOCK.GENERATOR_ID }, false);
+        public static Index BLOCK_BLOCK_GENERATOR_ID_HEIGHT_IDX = Internal.createIndex("block_generator_id_height_idx", Block.BLOCK, new OrderField[] { Block.BLOCK.GENERATOR_ID, Block.BLOCK.HEIGHT }, false);
         public static Index BLOCK_BLOCK_HEIGHT_IDX = Internal.createIndex("block_height_idx", Block.BLOCK, new OrderField[] { Block.BLOCK.HEIGHT }, true);
         public static Index BLOCK_BLOCK_ID_IDX = Internal.createIndex("block_id_idx", Block.BLOCK, new OrderField[] { Block.BLOCK.ID }, true);
         public static Index BLOCK_BLOCK_TIMESTAMP_IDX = Internal.createIndex("block_timestamp_idx", Block.BLOCK, new OrderField[] { Block.BLOCK.TIMESTAMP }, true);
@@ -220,8 +220,8 @@ public class Indexes {
         public static Index TRANSACTION_TRANSACTION_FULL_HASH_IDX = Internal.createIndex("transaction_full_hash_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.FULL_HASH }, true);
         public static Index TRANSACTION_TRANSACTION_ID_IDX = Internal.createIndex("transaction_id_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.ID }, true);
         public static Index TRANSACTION_TRANSACTION_RECIPIENT_ID_AMOUNT_HEIGHT_IDX = Internal.createIndex("transaction_recipient_id_amount_height_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.RECIPIENT_ID, Transaction.TRANSACTION.AMOUNT, Transaction.TRANSACTION.HEIGHT }, false);
-        public static Index TRANSACTION_TRANSACTION_RECIPIENT_ID_IDX = Internal.createIndex("transaction_recipient_id_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.RECIPIENT_ID }, false);
-        public static Index TRANSACTION_TRANSACTION_SENDER_ID_IDX = Internal.createIndex("transaction_sender_id_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.SENDER_ID }, false);
+        public static Index TRANSACTION_TRANSACTION_RECIPIENT_ID_BLOCK_TIMESTAMP_IDX = Internal.createIndex("transaction_recipient_id_block_timestamp_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.RECIPIENT_ID, Transaction.TRANSACTION.BLOCK_TIMESTAMP, Transaction.TRANSACTION.ID }, false);
+        public static Index TRANSACTION_TRANSACTION_SENDER_ID_BLOCK_TIMESTAMP_IDX = Internal.createIndex("transaction_sender_id_block_timestamp_idx", Transaction.TRANSACTION, new OrderField[] { Transaction.TRANSACTION.SENDER_ID, Transaction.TRANSACTION.BLOCK_TIMESTAMP, Transaction.TRANSACTION.ID }, false);
         public static Index UNCONFIRMED_TRANSACTION_PRIMARY = Internal.createIndex("PRIMARY", UnconfirmedTransaction.UNCONFIRMED_TRANSACTION, new OrderField[] { UnconfirmedTransaction.UNCONFIRMED_TRANSACTION.DB_ID }, true);
         public static Index UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_HEIGHT_FEE_TIMESTAMP_IDX = Internal.createIndex("unconfirmed_transaction_height_fee_timestamp_idx", UnconfirmedTransaction.UNCONFIRMED_TRANSACTION, new OrderField[] { UnconfirmedTransaction.UNCONFIRMED_TRANSACTION.TRANSACTION_HEIGHT, UnconfirmedTransaction.UNCONFIRMED_TRANSACTION.FEE_PER_BYTE, UnconfirmedTransaction.UNCONFIRMED_TRANSACTION.TIMESTAMP }, false);
         public static Index UNCONFIRMED_TRANSACTION_UNCONFIRMED_TRANSACTION_ID_IDX = Internal.createIndex("unconfirmed_transaction_id_idx", UnconfirmedTransaction.UNCONFIRMED_TRANSACTION, new OrderField[] { UnconfirmedTransaction.UNCONFIRMED_TRANSACTION.ID }, true);
@@ -191,7 +191,7 @@ public class Block extends TableImpl<BlockRecord> {
      */
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.BLOCK_BLOCK_GENERATOR_ID_IDX, Indexes.BLOCK_BLOCK_HEIGHT_IDX, Indexes.BLOCK_BLOCK_ID_IDX, Indexes.BLOCK_BLOCK_TIMESTAMP_IDX, Indexes.BLOCK_CONSTRAINT_3C, Indexes.BLOCK_CONSTRAINT_3C5, Indexes.BLOCK_PRIMARY);
+        return Arrays.<Index>asList(Indexes.BLOCK_BLOCK_GENERATOR_ID_HEIGHT_IDX, Indexes.BLOCK_BLOCK_HEIGHT_IDX, Indexes.BLOCK_BLOCK_ID_IDX, Indexes.BLOCK_BLOCK_TIMESTAMP_IDX, Indexes.BLOCK_CONSTRAINT_3C, Indexes.BLOCK_CONSTRAINT_3C5, Indexes.BLOCK_PRIMARY);
     }
 
     /**
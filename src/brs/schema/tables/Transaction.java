@@ -216,7 +216,7 @@ public class Transaction extends TableImpl<TransactionRecord> {
      */
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.TRANSACTION_CONSTRAINT_FF, Indexes.TRANSACTION_PRIMARY, Indexes.TRANSACTION_TRANSACTION_BLOCK_TIMESTAMP_IDX, Indexes.TRANSACTION_TRANSACTION_FULL_HASH_IDX, Indexes.TRANSACTION_TRANSACTION_ID_IDX, Indexes.TRANSACTION_TRANSACTION_RECIPIENT_ID_AMOUNT_HEIGHT_IDX, Indexes.TRANSACTION_TRANSACTION_RECIPIENT_ID_IDX, Indexes.TRANSACTION_TRANSACTION_SENDER_ID_IDX);
+        return Arrays.<Index>asList(Indexes.TRANSACTION_CONSTRAINT_FF, Indexes.TRANSACTION_PRIMARY, Indexes.TRANSACTION_TRANSACTION_BLOCK_TIMESTAMP_IDX, Indexes.TRANSACTION_TRANSACTION_FULL_HASH_IDX, Indexes.TRANSACTION_TRANSACTION_ID_IDX, Indexes.TRANSACTION_TRANSACTION_RECIPIENT_ID_AMOUNT_HEIGHT_IDX, Indexes.TRANSACTION_TRANSACTION_RECIPIENT_ID_BLOCK_TIMESTAMP_IDX, Indexes.TRANSACTION_TRANSACTION_SENDER_ID_BLOCK_TIMESTAMP_IDX);
     }
 
     /**
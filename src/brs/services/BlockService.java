@@ -4,6 +4,7 @@ import brs.Block;
 import brs.BlockchainProcessor;
 import brs.BlockchainProcessor.BlockNotAcceptedException;
 import brs.BlockchainProcessor.BlockOutOfOrderException;
+import brs.unconfirmedtransactions.TouchedKeys;
 
 public interface BlockService {
 
@@ -21,7 +22,11 @@ public interface BlockService {
 
   boolean verifyBlockSignature(Block block) throws BlockOutOfOrderException;
 
-  void apply(Block block);
+  /**
+   * Applies the transactions of the block and rewards its generator, the accounts and entities it
+   * refers to are added to {@code touchedKeys}.
+   */
+  void apply(Block block, TouchedKeys touchedKeys);
 
   int getScoopNum(Block block);
 }
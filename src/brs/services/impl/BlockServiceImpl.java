@@ -7,6 +7,7 @@ import brs.fluxcapacitor.FluxValues;
 import brs.services.AccountService;
 import brs.services.BlockService;
 import brs.services.TransactionService;
+import brs.unconfirmedtransactions.TouchedKeys;
 import brs.util.Convert;
 import brs.util.DownloadCacheImpl;
 import brs.util.ThreadPool;
@@ -108,36 +109,40 @@ public class BlockServiceImpl implements BlockService {
       return;
     }
 
+    BigInteger pocTime;
     try {
       // Pre-verify poc:
       if (scoopData == null) {
-        block.setPocTime(generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), getScoopNum(block), block.getHeight()));
+        pocTime = generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), getScoopNum(block), block.getHeight());
       } else {
-        block.setPocTime(generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), scoopData));
+        pocTime = generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), scoopData);
       }
     } catch (RuntimeException e) {
       logger.info("Error pre-verifying block generation signature", e);
       return;
     }
 
-    for (Transaction transaction : block.getTransactions()) {
-      if (!transaction.verifySignature()) {
-        if (logger.isInfoEnabled()) {
-          logger.info("Bad transaction signature during block pre-verification for tx: {} at block height: {}", Convert.toUnsignedLong(transaction.getId()), block.getHeight());
-        }
-        throw new BlockchainProcessor.TransactionNotAcceptedException("Invalid signature for tx: " + Convert.toUnsignedLong(transaction.getId()) + " at block height: " + block.getHeight(),
-            transaction);
+    Transaction transaction = Transaction.verifySignatures(block.getTransactions());
+    if (transaction != null) {
+      if (logger.isInfoEnabled()) {
+        logger.info("Bad transaction signature during block pre-verification for tx: {} at block height: {}", Convert.toUnsignedLong(transaction.getId()), block.getHeight());
       }
-      if (Thread.currentThread().isInterrupted() || ! ThreadPool.running.get() )
-        throw new InterruptedException();
+      throw new BlockchainProcessor.TransactionNotAcceptedException("Invalid signature for tx: " + Convert.toUnsignedLong(transaction.getId()) + " at block height: " + block.getHeight(),
+          transaction);
     }
+    if (Thread.currentThread().isInterrupted() || ! ThreadPool.running.get() )
+      throw new InterruptedException();
 
+    // only mark the block as verified once the transaction signatures passed too,
+    // other threads skip verification as soon as they see the poc time
+    block.setPocTime(pocTime);
   }
 
   @Override
-  public void apply(Block block) {
+  public void apply(Block block, TouchedKeys touchedKeys) {
     Account generatorAccount = accountService.getOrAddAccount(block.getGeneratorId());
     generatorAccount.apply(block.getGeneratorPublicKey(), block.getHeight());
+    touchedKeys.addAccount(generatorAccount.getId());
     if (!Atm.getFluxCapacitor().getValue(FluxValues.REWARD_RECIPIENT_ENABLE)) {
       accountService.addToBalanceAndUnconfirmedBalanceNQT(generatorAccount, block.getTotalFeeNQT() + getBlockReward(block));
       accountService.addToForgedBalanceNQT(generatorAccount, block.getTotalFeeNQT() + getBlockReward(block));
@@ -153,10 +158,12 @@ public class BlockServiceImpl implements BlockService {
       }
       accountService.addToBalanceAndUnconfirmedBalanceNQT(rewardAccount, block.getTotalFeeNQT() + getBlockReward(block));
       accountService.addToForgedBalanceNQT(rewardAccount, block.getTotalFeeNQT() + getBlockReward(block));
+      touchedKeys.addAccount(rewardAccount.getId());
     }
 
     for(Transaction transaction : block.getTransactions()) {
       transactionService.apply(transaction);
+      touchedKeys.add(transaction);
     }
   }
 
@@ -0,0 +1,116 @@
+package brs.services.impl;
+
+import brs.Blockchain;
+import brs.Transaction;
+import brs.TransactionType;
+import brs.db.store.BlockchainStore;
+import brs.db.store.IndirectIncomingStore;
+import brs.db.store.Stores;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Writes the indirect incomings of the blocks behind the chain tip when {@link IndirectIncomingServiceImpl#isAsync()},
+ * so that importing blocks doesn't have to. It starts after the newest indirect incoming in the database and stays
+ * {@link #CONFIRMATIONS} blocks behind the chain, popped blocks move it back. Every range of blocks is written in
+ * its own transaction, writing a block twice only merges the same rows again.
+ */
+public class IndirectIncomingIndexer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndirectIncomingIndexer.class);
+
+    private static final int CONFIRMATIONS = 10;
+    private static final int BLOCKS_PER_TRANSACTION = 1440;
+    private static final List<Byte> SUBTYPES = Arrays.asList(TransactionType.Payment.MULTI_OUT.getSubtype(), TransactionType.Payment.MULTI_SAME_OUT.getSubtype());
+
+    private final IndirectIncomingServiceImpl indirectIncomingService;
+    private final IndirectIncomingStore indirectIncomingStore;
+    private final Blockchain blockchain;
+    private final BlockchainStore blockchainStore;
+    private final Stores stores;
+    private final BooleanSupplier paused;
+
+    private final Object lock = new Object();
+    // the indirect incomings up to this height are written, only moved back by popped blocks outside of the indexer thread
+    private int indexedHeight = Integer.MIN_VALUE;
+    private long poppedBlocks;
+
+    public IndirectIncomingIndexer(IndirectIncomingServiceImpl indirectIncomingService, IndirectIncomingStore indirectIncomingStore, Blockchain blockchain,
+                                   BlockchainStore blockchainStore, Stores stores, BooleanSupplier paused) {
+        this.indirectIncomingService = indirectIncomingService;
+        this.indirectIncomingStore = indirectIncomingStore;
+        this.blockchain = blockchain;
+        this.blockchainStore = blockchainStore;
+        this.stores = stores;
+        this.paused = paused;
+    }
+
+    /**
+     * Has to be called for every popped block, its indirect incomings have been rolled back with it.
+     */
+    public void blockPopped(int height) {
+        synchronized (lock) {
+            indexedHeight = Math.min(indexedHeight, height - 1);
+            poppedBlocks++;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (paused.getAsBoolean()) {
+            return;
+        }
+        try {
+            synchronized (lock) {
+                if (indexedHeight == Integer.MIN_VALUE) {
+                    indexedHeight = indirectIncomingStore.getLastHeight();
+                    LOGGER.info("Indexing indirect incomings from height {}", indexedHeight + 1);
+                }
+            }
+            int targetHeight = blockchain.getHeight() - CONFIRMATIONS;
+            while (!paused.getAsBoolean()) {
+                int fromHeight;
+                long poppedBefore;
+                synchronized (lock) {
+                    fromHeight = indexedHeight + 1;
+                    poppedBefore = poppedBlocks;
+                }
+                if (fromHeight > targetHeight) {
+                    return;
+                }
+                int toHeight = Math.min(fromHeight + BLOCKS_PER_TRANSACTION - 1, targetHeight);
+                index(fromHeight, toHeight);
+                synchronized (lock) {
+                    // the range may contain rows of a block popped in the meantime, they point to transactions that
+                    // are no longer in the chain and are never returned, but the range has to be written again
+                    if (poppedBlocks == poppedBefore) {
+                        indexedHeight = toHeight;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.info("Error indexing indirect incomings", e);
+        }
+    }
+
+    private void index(int fromHeight, int toHeight) {
+        try {
+            stores.beginTransaction();
+            Collection<Transaction> transactions = blockchainStore.getTransactions(TransactionType.Payment.MULTI_OUT.getType(), SUBTYPES, fromHeight, toHeight);
+            for (Transaction transaction : transactions) {
+                indirectIncomingService.index(transaction);
+            }
+            stores.commitTransaction();
+            LOGGER.debug("Indexed {} multi-out transactions from height {} to {}", transactions.size(), fromHeight, toHeight);
+        } catch (RuntimeException e) {
+            stores.rollbackTransaction();
+            throw e;
+        } finally {
+            stores.endTransaction();
+        }
+    }
+}
@@ -20,18 +20,33 @@ public class IndirectIncomingServiceImpl implements IndirectIncomingService {
 
     private final IndirectIncomingStore indirectIncomingStore;
     private final boolean disabled;
+    private final boolean async;
 
     public IndirectIncomingServiceImpl(IndirectIncomingStore indirectIncomingStore, PropertyService propertyService) {
         this.indirectIncomingStore = indirectIncomingStore;
         this.disabled = !propertyService.getBoolean(Props.INDIRECT_INCOMING_SERVICE_ENABLE);
+        this.async = !disabled && propertyService.getBoolean(Props.INDIRECT_INCOMING_SERVICE_ASYNC);
         if (disabled) {
             LOGGER.warn("Indirect Incoming Service Disabled!");
+        } else if (async) {
+            LOGGER.info("Indirect Incoming Service indexing in the background");
         }
     }
 
+    /**
+     * @return whether the indirect incomings are left to an {@link IndirectIncomingIndexer} instead of being written with the blocks
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
     @Override
     public void processTransaction(Transaction transaction) {
-        if (disabled) return;
+        if (disabled || async) return;
+        index(transaction);
+    }
+
+    void index(Transaction transaction) {
         indirectIncomingStore.addIndirectIncomings(getIndirectIncomings(transaction).stream()
                 .map(account -> new IndirectIncomingStore.IndirectIncoming(account, transaction.getId(), transaction.getHeight()))
                 .collect(Collectors.toList()));
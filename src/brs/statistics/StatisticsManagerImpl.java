@@ -4,8 +4,9 @@ import brs.services.TimeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class StatisticsManagerImpl {
@@ -17,7 +18,9 @@ public class StatisticsManagerImpl {
   private int addedBlockCount;
   private int firstBlockAdded;
 
-  private final Map<String, CacheStatisticsOverview> cacheStatistics = new HashMap<>();
+  // the caches are also read by API threads
+  private final Map<String, CacheStatisticsOverview> cacheStatistics = new ConcurrentHashMap<>();
+  private final Map<String, VerificationStatistics> verificationStatistics = new ConcurrentHashMap<>();
 
   public StatisticsManagerImpl(TimeService timeService) {
     this.timeService = timeService;
@@ -32,11 +35,23 @@ public class StatisticsManagerImpl {
   }
 
   private CacheStatisticsOverview getCacheStatisticsOverview(String cacheName) {
-    if(! this.cacheStatistics.containsKey(cacheName)) {
-      this.cacheStatistics.put(cacheName, new CacheStatisticsOverview(cacheName));
-    }
+    return cacheStatistics.computeIfAbsent(cacheName, CacheStatisticsOverview::new);
+  }
 
-    return cacheStatistics.get(cacheName);
+  /**
+   * Called by the block pre-verification workers for every block they verified.
+   */
+  public void blockVerified(String worker, long nanos) {
+    verificationStatistics.computeIfAbsent(worker, w -> new VerificationStatistics()).blockVerified(nanos);
+  }
+
+  /**
+   * @return blocks verified per second and busy percentage of each pre-verification worker since the last call
+   */
+  public Map<String, String> getVerificationRatesAndReset() {
+    Map<String, String> rates = new TreeMap<>();
+    verificationStatistics.forEach((worker, statistics) -> rates.put(worker, statistics.getRateAndReset()));
+    return rates;
   }
 
   public void blockAdded() {
@@ -48,12 +63,37 @@ public class StatisticsManagerImpl {
       if (logger.isInfoEnabled()) {
         final String handleText = "handling {} blocks/s" + cacheStatistics.values().stream().map(cacheInfo -> " " + cacheInfo.getCacheInfoAndReset()).collect(Collectors.joining());
         logger.info(handleText, String.format("%.2f", blocksPerSecond));
+        if (!verificationStatistics.isEmpty()) {
+          logger.info("verifying blocks/s per worker:{}", getVerificationRatesAndReset().entrySet().stream()
+              .map(rate -> " " + rate.getKey() + " " + rate.getValue()).collect(Collectors.joining()));
+        }
       }
 
       addedBlockCount = 0;
     }
   }
 
+  private static class VerificationStatistics {
+    private long verifiedBlocks;
+    private long busyNanos;
+    private long since = System.nanoTime();
+
+    private synchronized void blockVerified(long nanos) {
+      verifiedBlocks++;
+      busyNanos += nanos;
+    }
+
+    private synchronized String getRateAndReset() {
+      long now = System.nanoTime();
+      long elapsed = Math.max(now - since, 1);
+      String rate = String.format("%.2f (%.0f%% busy)", verifiedBlocks * 1e9 / elapsed, busyNanos * 100.0 / elapsed);
+      verifiedBlocks = 0;
+      busyNanos = 0;
+      since = now;
+      return rate;
+    }
+  }
+
   private class CacheStatisticsOverview {
     private final String cacheName;
 
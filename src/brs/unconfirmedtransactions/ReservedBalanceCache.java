@@ -69,8 +69,12 @@ class ReservedBalanceCache {
     }
   }
 
-  public List<Transaction> rebuild(List<Transaction> transactions) {
-    clear();
+  /**
+   * Reserves the balance of the transactions of a single sender again, the reservations of the other senders stay.
+   * @return the transactions the balance of the sender no longer covers
+   */
+  public List<Transaction> rebuild(long senderId, List<Transaction> transactions) {
+    reservedBalanceCache.remove(senderId);
 
     final List<Transaction> insufficientFundsTransactions = new ArrayList<>();
 
@@ -0,0 +1,112 @@
+package brs.unconfirmedtransactions;
+
+import brs.Attachment;
+import brs.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The accounts and entities changed since the unconfirmed transactions were last checked. Only the
+ * unconfirmed transactions that refer to one of them have to be validated again, and only the balances
+ * reserved for the changed accounts have to be reserved again. Touching more than was actually changed
+ * just costs a check that wasn't needed.
+ */
+public final class TouchedKeys {
+
+  private final Set<Long> accounts = ConcurrentHashMap.newKeySet();
+  private final Set<Object> keys = ConcurrentHashMap.newKeySet();
+  private volatile boolean all;
+
+  public void addAccount(long accountId) {
+    accounts.add(accountId);
+    keys.add(accountId);
+  }
+
+  /**
+   * Marks every account and entity as touched, for changes that aren't reported per account, like
+   * popped blocks rolling back the derived tables.
+   */
+  public void touchAll() {
+    all = true;
+  }
+
+  public boolean touchesAll() {
+    return all;
+  }
+
+  public void add(Transaction transaction) {
+    keys.addAll(keysOf(transaction));
+  }
+
+  /**
+   * @return the accounts whose balances may have changed, see {@link #touchesAll()} for the others
+   */
+  public Collection<Long> getAccounts() {
+    return accounts;
+  }
+
+  public boolean touches(Transaction transaction) {
+    if (all) {
+      return true;
+    }
+    for (Object key : keysOf(transaction)) {
+      if (keys.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the accounts and entities the validation of {@code transaction} depends on, entities are
+   * identified by their id, aliases by their lower case name
+   */
+  static Collection<Object> keysOf(Transaction transaction) {
+    List<Object> transactionKeys = new ArrayList<>(3);
+    transactionKeys.add(transaction.getSenderId());
+    if (transaction.getRecipientId() != 0) {
+      transactionKeys.add(transaction.getRecipientId());
+    }
+
+    Attachment attachment = transaction.getAttachment();
+    if (attachment instanceof Attachment.MessagingAliasAssignment) {
+      transactionKeys.add(((Attachment.MessagingAliasAssignment) attachment).getAliasName().toLowerCase(Locale.ENGLISH));
+    } else if (attachment instanceof Attachment.MessagingAliasSell) {
+      transactionKeys.add(((Attachment.MessagingAliasSell) attachment).getAliasName().toLowerCase(Locale.ENGLISH));
+    } else if (attachment instanceof Attachment.MessagingAliasBuy) {
+      transactionKeys.add(((Attachment.MessagingAliasBuy) attachment).getAliasName().toLowerCase(Locale.ENGLISH));
+    } else if (attachment instanceof Attachment.ColoredCoinsAssetTransfer) {
+      transactionKeys.add(((Attachment.ColoredCoinsAssetTransfer) attachment).getAssetId());
+    } else if (attachment instanceof Attachment.ColoredCoinsOrderPlacement) {
+      transactionKeys.add(((Attachment.ColoredCoinsOrderPlacement) attachment).getAssetId());
+    } else if (attachment instanceof Attachment.ColoredCoinsOrderCancellation) {
+      transactionKeys.add(((Attachment.ColoredCoinsOrderCancellation) attachment).getOrderId());
+    } else if (attachment instanceof Attachment.DigitalGoodsDelisting) {
+      transactionKeys.add(((Attachment.DigitalGoodsDelisting) attachment).getGoodsId());
+    } else if (attachment instanceof Attachment.DigitalGoodsPriceChange) {
+      transactionKeys.add(((Attachment.DigitalGoodsPriceChange) attachment).getGoodsId());
+    } else if (attachment instanceof Attachment.DigitalGoodsQuantityChange) {
+      transactionKeys.add(((Attachment.DigitalGoodsQuantityChange) attachment).getGoodsId());
+    } else if (attachment instanceof Attachment.DigitalGoodsPurchase) {
+      transactionKeys.add(((Attachment.DigitalGoodsPurchase) attachment).getGoodsId());
+    } else if (attachment instanceof Attachment.DigitalGoodsDelivery) {
+      transactionKeys.add(((Attachment.DigitalGoodsDelivery) attachment).getPurchaseId());
+    } else if (attachment instanceof Attachment.DigitalGoodsFeedback) {
+      transactionKeys.add(((Attachment.DigitalGoodsFeedback) attachment).getPurchaseId());
+    } else if (attachment instanceof Attachment.DigitalGoodsRefund) {
+      transactionKeys.add(((Attachment.DigitalGoodsRefund) attachment).getPurchaseId());
+    } else if (attachment instanceof Attachment.AdvancedPaymentEscrowCreation) {
+      transactionKeys.addAll(((Attachment.AdvancedPaymentEscrowCreation) attachment).getSigners());
+    } else if (attachment instanceof Attachment.AdvancedPaymentEscrowSign) {
+      transactionKeys.add(((Attachment.AdvancedPaymentEscrowSign) attachment).getEscrowId());
+    } else if (attachment instanceof Attachment.AdvancedPaymentSubscriptionCancel) {
+      transactionKeys.add(((Attachment.AdvancedPaymentSubscriptionCancel) attachment).getSubscriptionId());
+    }
+    return transactionKeys;
+  }
+}
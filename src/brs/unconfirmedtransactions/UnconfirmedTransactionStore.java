@@ -4,6 +4,7 @@ import brs.AtmException;
 import brs.Transaction;
 import brs.peer.Peer;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UnconfirmedTransactionStore {
@@ -16,6 +17,8 @@ public interface UnconfirmedTransactionStore {
 
   List<Transaction> getAll();
 
+  List<Transaction> getAllFrom(long senderId);
+
   List<Transaction> getAllFor(Peer peer);
 
   void remove(Transaction transaction);
@@ -23,10 +26,10 @@ public interface UnconfirmedTransactionStore {
   void clear();
 
   /**
-   * Review which transactions are still eligible to stay
-   * @return The list of removed transactions
+   * Reserves the balances of the transactions sent by the given accounts again and removes the
+   * transactions their balances no longer cover
    */
-  void resetAccountBalances();
+  void resetAccountBalances(Collection<Long> accountIds);
 
   void markFingerPrintsOf(Peer peer, List<Transaction> transactions);
 
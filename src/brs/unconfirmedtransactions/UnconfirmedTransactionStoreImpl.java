@@ -3,7 +3,6 @@ package brs.unconfirmedtransactions;
 import brs.AtmException.ValidationException;
 import brs.Constants;
 import brs.Transaction;
-import brs.db.TransactionDb;
 import brs.db.store.AccountStore;
 import brs.peer.Peer;
 import brs.props.PropertyService;
@@ -16,24 +15,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionStore {
 
   private static final Logger logger = LoggerFactory.getLogger(UnconfirmedTransactionStoreImpl.class);
 
+  private static final Comparator<Transaction> CHEAPEST_FIRST_TO_EXPIRE = Comparator.comparingLong(Transaction::getFeeNQT)
+      .thenComparingInt(Transaction::getExpiration)
+      .thenComparingLong(Transaction::getId);
+
+  private static final Comparator<Transaction> FIRST_TO_EXPIRE = Comparator.comparingInt(Transaction::getExpiration)
+      .thenComparingLong(Transaction::getId);
+
   private final TimeService timeService;
   private final ReservedBalanceCache reservedBalanceCache;
   private final TransactionDuplicatesCheckerImpl transactionDuplicatesChecker = new TransactionDuplicatesCheckerImpl();
 
-  private final HashMap<Transaction, HashSet<Peer>> fingerPrintsOverview = new HashMap<>();
-
-  private final SortedMap<Long, List<Transaction>> internalStore;
+  // the indexes are only changed together while holding the monitor of internalStore, reading them doesn't need it
+  private final ConcurrentSkipListSet<Transaction> internalStore = new ConcurrentSkipListSet<>(CHEAPEST_FIRST_TO_EXPIRE);
+  private final ConcurrentMap<Long, Transaction> transactionsById = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, Set<Transaction>> transactionsBySender = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Transaction, Set<Peer>> fingerPrintsOverview = new ConcurrentHashMap<>();
+  private final Map<Long, Integer> amountSlotSizes = new HashMap<>();
+  // only used while holding the monitor of internalStore, so the cleanup only visits the expired transactions
+  private final TreeSet<Transaction> transactionsByExpiration = new TreeSet<>(FIRST_TO_EXPIRE);
 
-  private int totalSize;
   private final int maxSize;
 
   private final int maxRawUTBytesToSend;
@@ -41,29 +53,31 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
   private int numberUnconfirmedTransactionsFullHash;
   private final int maxPercentageUnconfirmedTransactionsFullHash;
 
-  public UnconfirmedTransactionStoreImpl(TimeService timeService, PropertyService propertyService, AccountStore accountStore, TransactionDb transactionDb) {
+  public UnconfirmedTransactionStoreImpl(TimeService timeService, PropertyService propertyService, AccountStore accountStore) {
     this.timeService = timeService;
 
     this.reservedBalanceCache = new ReservedBalanceCache(accountStore);
 
     this.maxSize = propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS);
-    this.totalSize = 0;
 
     this.maxRawUTBytesToSend = propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS_RAW_SIZE_BYTES_TO_SEND);
 
     this.maxPercentageUnconfirmedTransactionsFullHash = propertyService.getInt(Props.P2P_MAX_PERCENTAGE_UNCONFIRMED_TRANSACTIONS_FULL_HASH_REFERENCE);
     this.numberUnconfirmedTransactionsFullHash = 0;
 
-    internalStore = new TreeMap<>();
-
       ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // confirmed transactions are already removed when their block is pushed
     Runnable cleanupExpiredTransactions = () -> {
       synchronized (internalStore) {
-        final List<Transaction> expiredTransactions = getAll()
-                .stream()
-                .filter(t -> timeService.getEpochTime() > t.getExpiration() || transactionDb.hasTransaction(t.getId()))
-                .collect(Collectors.toList());
-        expiredTransactions.forEach(this::removeTransaction);
+        final int now = timeService.getEpochTime();
+        Transaction first;
+        while ((first = transactionsByExpiration.pollFirst()) != null) {
+          if (first.getExpiration() >= now) {
+            transactionsByExpiration.add(first);
+            break;
+          }
+          removeAndRefundTransaction(first);
+        }
       }
     };
     scheduler.scheduleWithFixedDelay(cleanupExpiredTransactions, 1, 1, TimeUnit.MINUTES);
@@ -92,14 +106,16 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
 
             addTransaction(transaction, peer);
 
-            if (totalSize > maxSize) {
+            if (transactionsById.size() > maxSize) {
               removeCheapestFirstToExpireTransaction();
             }
           } else {
             logger.info("Transaction {}: Will not add a cheaper duplicate UT", transaction.getId());
+            this.reservedBalanceCache.refundBalance(transaction);
           }
         } else {
           addTransaction(transaction, peer);
+          int totalSize = transactionsById.size();
           if (totalSize % 128 == 0) {
             logger.info("Cache size: {}/{} added {} from sender {}", totalSize, maxSize, transaction.getId(), transaction.getSenderId());
           } else {
@@ -107,7 +123,7 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
           }
         }
 
-        if (totalSize > maxSize) {
+        if (transactionsById.size() > maxSize) {
           removeCheapestFirstToExpireTransaction();
         }
 
@@ -120,71 +136,58 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
 
   @Override
   public Transaction get(Long transactionId) {
-    synchronized (internalStore) {
-      for (List<Transaction> amountSlot : internalStore.values()) {
-        for (Transaction t : amountSlot) {
-          if (t.getId() == transactionId) {
-            return t;
-          }
-        }
-      }
-      return null;
-    }
+    return transactionsById.get(transactionId);
   }
 
   @Override
   public boolean exists(Long transactionId) {
-    synchronized (internalStore) {
-      return get(transactionId) != null;
-    }
+    return transactionsById.containsKey(transactionId);
   }
 
   @Override
   public List<Transaction> getAll() {
-    synchronized (internalStore) {
-      final ArrayList<Transaction> flatTransactionList = new ArrayList<>();
-
-      for (List<Transaction> amountSlot : internalStore.values()) {
-        flatTransactionList.addAll(amountSlot);
-      }
+    return new ArrayList<>(internalStore);
+  }
 
-      return flatTransactionList;
-    }
+  @Override
+  public List<Transaction> getAllFrom(long senderId) {
+    final Set<Transaction> transactions = transactionsBySender.get(senderId);
+    return transactions == null ? new ArrayList<>() : new ArrayList<>(transactions);
   }
 
   @Override
   public List<Transaction> getAllFor(Peer peer) {
-    synchronized (internalStore) {
-      final List<Transaction> untouchedTransactions = fingerPrintsOverview.entrySet().stream()
-          .filter(e -> !e.getValue().contains(peer))
-          .map(Map.Entry::getKey).collect(Collectors.toList());
+    final ArrayList<Transaction> resultList = new ArrayList<>();
 
-      final ArrayList<Transaction> resultList = new ArrayList<>();
+    long roomLeft = this.maxRawUTBytesToSend;
 
-      long roomLeft = this.maxRawUTBytesToSend;
+    // the most valuable ones first when they don't all fit
+    for (Transaction t : internalStore.descendingSet()) {
+      final Set<Peer> peers = fingerPrintsOverview.get(t);
+      if (peers == null || peers.contains(peer)) {
+        continue;
+      }
 
-      for (Transaction t : untouchedTransactions) {
-        roomLeft -= t.getSize();
+      roomLeft -= t.getSize();
 
-        if (roomLeft > 0) {
-          resultList.add(t);
-        } else {
-          break;
-        }
+      if (roomLeft > 0) {
+        resultList.add(t);
+      } else {
+        break;
       }
-
-      return resultList;
     }
+
+    return resultList;
   }
 
   @Override
   public void remove(Transaction transaction) {
     synchronized (internalStore) {
       // Make sure that we are acting on our own copy of the transaction, as this is the one we want to remove.
-      Transaction internalTransaction = get(transaction.getId());
+      Transaction internalTransaction = transactionsById.get(transaction.getId());
       if (internalTransaction != null) {
         logger.debug("Removing {}", transaction.getId());
-        removeTransaction(internalTransaction);
+        removeAndRefundTransaction(internalTransaction);
       }
     }
   }
@@ -193,29 +196,40 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
   public void clear() {
     synchronized (internalStore) {
       logger.info("Clearing UTStore");
-      totalSize = 0;
       internalStore.clear();
+      transactionsById.clear();
+      transactionsBySender.clear();
+      fingerPrintsOverview.clear();
+      amountSlotSizes.clear();
+      transactionsByExpiration.clear();
+      numberUnconfirmedTransactionsFullHash = 0;
       reservedBalanceCache.clear();
       transactionDuplicatesChecker.clear();
     }
   }
 
   @Override
-  public void resetAccountBalances() {
+  public void resetAccountBalances(Collection<Long> accountIds) {
     synchronized (internalStore) {
-      for(Transaction insufficientFundsTransactions: reservedBalanceCache.rebuild(getAll())) {
-        this.removeTransaction(insufficientFundsTransactions);
+      for (long accountId : accountIds) {
+        final List<Transaction> transactions = getAllFrom(accountId);
+        transactions.sort(CHEAPEST_FIRST_TO_EXPIRE);
+        for(Transaction insufficientFundsTransactions: reservedBalanceCache.rebuild(accountId, transactions)) {
+          this.removeTransaction(insufficientFundsTransactions);
+        }
       }
     }
   }
 
   @Override
   public void markFingerPrintsOf(Peer peer, List<Transaction> transactions) {
-    synchronized (internalStore) {
-      for (Transaction transaction : transactions) {
-        if (fingerPrintsOverview.containsKey(transaction)) {
-          fingerPrintsOverview.get(transaction).add(peer);
-        }
+    if (peer == null) {
+      return;
+    }
+    for (Transaction transaction : transactions) {
+      final Set<Peer> peers = fingerPrintsOverview.get(transaction);
+      if (peers != null) {
+        peers.add(peer);
       }
     }
   }
@@ -231,12 +245,11 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
 
   @Override
   public int getAmount() {
-    return totalSize;
+    return transactionsById.size();
   }
 
   private boolean transactionIsCurrentlyInCache(Transaction transaction) {
-    final List<Transaction> amountSlot = internalStore.get(amountSlotForTransaction(transaction));
-    return amountSlot != null && amountSlot.stream().anyMatch(t -> t.getId() == transaction.getId());
+    return transactionsById.containsKey(transaction.getId());
   }
 
   private boolean transactionCanBeAddedToCache(Transaction transaction) {
@@ -249,7 +262,7 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
   private boolean tooManyTransactionsForSlotSize(Transaction transaction) {
     final long slotHeight = this.amountSlotForTransaction(transaction);
 
-    if (this.internalStore.containsKey(slotHeight) && this.internalStore.get(slotHeight).size() == slotHeight * 360) {
+    if (this.amountSlotSizes.getOrDefault(slotHeight, 0) == slotHeight * 360) {
       logger.info("Transaction {}: Not added because slot {} is full", transaction.getId(), slotHeight);
       return true;
     }
@@ -267,7 +280,7 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
   }
 
   private boolean cacheFullAndTransactionCheaperThanAllTheRest(Transaction transaction) {
-    if (totalSize == maxSize && internalStore.firstKey() > amountSlotForTransaction(transaction)) {
+    if (transactionsById.size() == maxSize && amountSlotForTransaction(internalStore.first()) > amountSlotForTransaction(transaction)) {
       logger.info("Transaction {}: Not added because cache is full and transaction is cheaper than all the rest", transaction.getId());
       return true;
     }
@@ -285,15 +298,17 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
   }
 
   private void addTransaction(Transaction transaction, Peer peer) {
-    final List<Transaction> slot = getOrCreateAmountSlotForTransaction(transaction);
-    slot.add(transaction);
-    totalSize++;
-
-    fingerPrintsOverview.put(transaction, new HashSet<>());
-
+    final Set<Peer> peers = ConcurrentHashMap.newKeySet();
     if (peer != null) {
-      fingerPrintsOverview.get(transaction).add(peer);
+      peers.add(peer);
     }
+    fingerPrintsOverview.put(transaction, peers);
+
+    transactionsById.put(transaction.getId(), transaction);
+    transactionsBySender.computeIfAbsent(transaction.getSenderId(), senderId -> ConcurrentHashMap.newKeySet()).add(transaction);
+    amountSlotSizes.merge(amountSlotForTransaction(transaction), 1, Integer::sum);
+    internalStore.add(transaction);
+    transactionsByExpiration.add(transaction);
 
     if (logger.isDebugEnabled()) {
       if (peer == null) {
@@ -308,50 +323,42 @@ public class UnconfirmedTransactionStoreImpl implements UnconfirmedTransactionSt
     }
   }
 
-  private List<Transaction> getOrCreateAmountSlotForTransaction(Transaction transaction) {
-    final long amountSlotNumber = amountSlotForTransaction(transaction);
-
-    if (!this.internalStore.containsKey(amountSlotNumber)) {
-      this.internalStore.put(amountSlotNumber, new ArrayList<>());
-    }
-
-    return this.internalStore.get(amountSlotNumber);
-  }
-
-
   private long amountSlotForTransaction(Transaction transaction) {
     return transaction.getFeeNQT() / Constants.FEE_QUANT;
   }
 
+  private void removeAndRefundTransaction(Transaction transaction) {
+    if (transactionsById.containsKey(transaction.getId())) {
+      reservedBalanceCache.refundBalance(transaction);
+      removeTransaction(transaction);
+    }
+  }
+
   private void removeCheapestFirstToExpireTransaction() {
-    final Optional<Transaction> cheapestFirstToExpireTransaction = this.internalStore.get(this.internalStore.firstKey()).stream()
-        .sorted(Comparator.comparingLong(Transaction::getFeeNQT).thenComparing(Transaction::getExpiration).thenComparing(Transaction::getId))
-        .findFirst();
+    final Transaction cheapestFirstToExpireTransaction = this.internalStore.pollFirst();
 
-    if (cheapestFirstToExpireTransaction.isPresent()) {
-      reservedBalanceCache.refundBalance(cheapestFirstToExpireTransaction.get());
-      removeTransaction(cheapestFirstToExpireTransaction.get());
+    if (cheapestFirstToExpireTransaction != null) {
+      reservedBalanceCache.refundBalance(cheapestFirstToExpireTransaction);
+      removeTransaction(cheapestFirstToExpireTransaction);
     }
   }
 
   private void removeTransaction(Transaction transaction) {
-    if (transaction == null) return;
-    final long amountSlotNumber = amountSlotForTransaction(transaction);
-
-    final List<Transaction> amountSlot = internalStore.get(amountSlotNumber);
-
+    if (transaction == null || transactionsById.remove(transaction.getId()) == null) return;
+
+    internalStore.remove(transaction);
+    transactionsByExpiration.remove(transaction);
+    transactionsBySender.computeIfPresent(transaction.getSenderId(), (senderId, transactions) -> {
+      transactions.remove(transaction);
+      return transactions.isEmpty() ? null : transactions;
+    });
+    amountSlotSizes.computeIfPresent(amountSlotForTransaction(transaction), (slot, size) -> size > 1 ? size - 1 : null);
     fingerPrintsOverview.remove(transaction);
-    amountSlot.remove(transaction);
-    totalSize--;
     transactionDuplicatesChecker.removeTransaction(transaction);
 
     if (!StringUtils.isEmpty(transaction.getReferencedTransactionFullHash())) {
       numberUnconfirmedTransactionsFullHash--;
     }
-
-    if (amountSlot.isEmpty()) {
-      this.internalStore.remove(amountSlotNumber);
-    }
   }
 
 }
@@ -18,10 +18,24 @@ import java.util.function.Supplier;
 public final class DownloadCacheImpl {
   private final int blockCacheMB;
 
-  private final Map<Long, Block> blockCache = new LinkedHashMap<>();
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /*
+   * The cached blocks always form a chain, so they are kept in a ring indexed by height:
+   * block at height h is in slot h & (capacity - 1) for headHeight <= h < headHeight + count.
+   */
+  private Block[] blockRing = new Block[INITIAL_CAPACITY];
+  private int[] blockSizes = new int[INITIAL_CAPACITY];
+  // set once a block has been taken for verification
+  private boolean[] verificationClaimed = new boolean[INITIAL_CAPACITY];
+  private int headHeight = 0;
+  private int count = 0;
+  private final LongIntHashMap heightById = new LongIntHashMap(INITIAL_CAPACITY, -1);
+  // no unclaimed block is below this height
+  private int unverifiedHeight = 0;
+  private int unverifiedCount = 0;
+
   private final List<Block> forkCache = new ArrayList<>();
-  private final Map<Long, Long> reverseCache = new LinkedHashMap<>();
-  private final List<Long> unverified = new LinkedList<>();
 
   private final Logger logger = LoggerFactory.getLogger(DownloadCacheImpl.class);
 
@@ -139,11 +153,11 @@ public final class DownloadCacheImpl {
 
   public int getUnverifiedSize() {
     long stamp = dcsl.tryOptimisticRead();
-    int retVal = unverified.size();
+    int retVal = unverifiedCount;
     if (!dcsl.validate(stamp)) {
       stamp = dcsl.readLock();
       try {
-        retVal = unverified.size();
+        retVal = unverifiedCount;
       } finally {
          dcsl.unlockRead(stamp);
       }
@@ -184,29 +198,36 @@ public final class DownloadCacheImpl {
     return retVal;
   }
 
-  public long getUnverifiedBlockIdFromPos(int pos) {
-    long stamp = dcsl.tryOptimisticRead();
-    long reVal = unverified.get(pos);
-    
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        reVal = unverified.get(pos);
-      } finally {
-         dcsl.unlockRead(stamp);
+  /**
+   * @return up to {@code max} blocks that have not been taken for verification yet, in height order
+   */
+  public List<Block> getUnverifiedBlocks(int max) {
+    return dcslRead(() -> {
+      List<Block> blocks = new ArrayList<>(Math.max(Math.min(max, unverifiedCount), 0));
+      for (int height = unverifiedHeight; height < headHeight + count && blocks.size() < max; height++) {
+        int slot = slot(height);
+        if (!verificationClaimed[slot]) {
+          blocks.add(blockRing[slot]);
+        }
       }
-    }
-    return reVal;
+      return blocks;
+    });
   }
+
+  /**
+   * Takes the lowest block that has not been taken for verification yet.
+   * @return the block or null if all cached blocks are verified or being verified
+   */
   public Block getFirstUnverifiedBlock() {
-	 long stamp = dcsl.writeLock();
-	 try {
-		 long blockId = unverified.get(0);
-		 Block block = blockCache.get(blockId);
-		 unverified.remove(blockId);
-		 return block;
-	 } finally {
+    long stamp = dcsl.writeLock();
+    try {
+      if (unverifiedHeight >= headHeight + count) {
+        return null;
+      }
+      int slot = slot(unverifiedHeight);
+      claimVerification(slot);
+      return blockRing[slot];
+    } finally {
       dcsl.unlockWrite(stamp);
     }
   }
@@ -214,29 +235,46 @@ public final class DownloadCacheImpl {
   public void removeUnverified(long blockId) {
     long stamp = dcsl.writeLock();
     try {
-      unverified.remove(blockId);
+      int height = heightById.get(blockId);
+      if (height >= 0) {
+        claimVerification(slot(height));
+      }
     } finally {
       dcsl.unlockWrite(stamp);
     }
   }
-  
+
   public void removeUnverifiedBatch(Collection<Block> blocks) {
     long stamp = dcsl.writeLock();
     try {
       for (Block block : blocks) {
-        unverified.remove(block.getId());
+        int height = heightById.get(block.getId());
+        if (height >= 0) {
+          claimVerification(slot(height));
+        }
       }
     } finally {
       dcsl.unlockWrite(stamp);
     }
   }
 
+  private void claimVerification(int slot) {
+    if (!verificationClaimed[slot]) {
+      verificationClaimed[slot] = true;
+      unverifiedCount--;
+    }
+    // keep the cursor on the first unclaimed block, each block is passed only once
+    while (unverifiedHeight < headHeight + count && verificationClaimed[slot(unverifiedHeight)]) {
+      unverifiedHeight++;
+    }
+  }
+
   public void resetCache() {
     long stamp = dcsl.writeLock();
     try {
-      blockCache.clear();
-      reverseCache.clear();
-      unverified.clear();
+      while (count > 0) {
+        removeHead();
+      }
       blockCacheSize = 0;
       lockedCache = true;
     } finally {
@@ -254,16 +292,7 @@ public final class DownloadCacheImpl {
         }
       }
     }
-    long stamp = dcsl.tryOptimisticRead();
-    Block retVal = getBlockInt(blockId);
-    if (!dcsl.validate(stamp)) {
-      stamp = dcsl.readLock();
-      try {
-        retVal = getBlockInt(blockId);
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-    }
+    Block retVal = dcslRead(() -> getBlockInt(blockId));
     if(retVal != null) {
       return retVal;
     }
@@ -273,46 +302,37 @@ public final class DownloadCacheImpl {
     return null;
   }
   private Block getBlockInt(long blockId) {
-    if (blockCache.containsKey(blockId)) {
-      return blockCache.get(blockId);
+    return getBlockAt(heightById.get(blockId));
+  }
+
+  private Block getBlockAt(int height) {
+    Block[] ring = blockRing;
+    if (height < headHeight || height >= headHeight + count) {
+      return null;
     }
-    return null;
+    return ring[height & (ring.length - 1)];
+  }
+
+  private int slot(int height) {
+    return height & (blockRing.length - 1);
   }
 
   public Block getNextBlock(long prevBlockId) {
-    long stamp = dcsl.tryOptimisticRead();
-    Block retVal = getNextBlockInt(prevBlockId);
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = getNextBlockInt(prevBlockId);
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
-    return retVal;
+    return dcslRead(() -> getNextBlockInt(prevBlockId));
   }
 
   private Block getNextBlockInt(long prevBlockId) {
-    if (reverseCache.containsKey(prevBlockId)) {
-      return blockCache.get(reverseCache.get(prevBlockId));
+    int height = heightById.get(prevBlockId);
+    if (height >= 0) {
+      return getBlockAt(height + 1);
     }
-    return null;
+    // the first cached block builds on a block of the chain
+    Block head = getBlockAt(headHeight);
+    return head != null && head.getPreviousBlockId() == prevBlockId ? head : null;
   }
 
   public boolean hasBlock(long blockId) {
-    long stamp = dcsl.tryOptimisticRead();
-    boolean retVal =  blockCache.containsKey(blockId);
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal =  blockCache.containsKey(blockId);
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
+    boolean retVal = dcslRead(() -> heightById.containsKey(blockId));
     if (retVal) {
       return true;
     }
@@ -335,20 +355,70 @@ public final class DownloadCacheImpl {
     if(!getLockState()) {
 	  long stamp = dcsl.writeLock();
       try {
-        blockCache.put(block.getId(), block);
-        reverseCache.put(block.getPreviousBlockId(), block.getId());
-        unverified.add(block.getId());
-        blockCacheSize += block.getByteLength();
-        lastBlockId = block.getId();
-        lastHeight = block.getHeight();
-        highestCumulativeDifficulty = block.getCumulativeDifficulty();
-        return true;
+        return appendBlock(block);
       } finally {
         dcsl.unlockWrite(stamp);
       }
     }
     return false;
   }
+
+  /**
+   * Replaces the cached blocks following {@code blockId} with {@code blocks}, e.g. with those of a better fork.
+   * Works on a locked cache too.
+   * @return false if {@code blockId} is not in the cache, the cache is left unchanged then
+   */
+  public boolean replaceBlocksAfter(long blockId, List<Block> blocks) {
+    long stamp = dcsl.writeLock();
+    try {
+      int height = heightById.get(blockId);
+      if (height < 0) {
+        return false;
+      }
+      while (headHeight + count - 1 > height) {
+        removeTail();
+      }
+      for (Block block : blocks) {
+        if (!appendBlock(block)) {
+          break;
+        }
+      }
+    } finally {
+      dcsl.unlockWrite(stamp);
+    }
+    setLastVars();
+    return true;
+  }
+
+  private boolean appendBlock(Block block) {
+    if (heightById.containsKey(block.getId())) {
+      return true;
+    }
+    if (count > 0 && block.getHeight() != headHeight + count) {
+      logger.debug("Block {} at height {} does not follow the cached blocks", block.getId(), block.getHeight());
+      return false;
+    }
+    if (count == 0) {
+      headHeight = block.getHeight();
+      unverifiedHeight = headHeight;
+    }
+    if (count == blockRing.length) {
+      growRing();
+    }
+    int slot = slot(block.getHeight());
+    int size = block.getByteLength();
+    blockRing[slot] = block;
+    blockSizes[slot] = size;
+    verificationClaimed[slot] = false;
+    heightById.put(block.getId(), block.getHeight());
+    count++;
+    unverifiedCount++;
+    blockCacheSize += size;
+    lastBlockId = block.getId();
+    lastHeight = block.getHeight();
+    highestCumulativeDifficulty = block.getCumulativeDifficulty();
+    return true;
+  }
   public void addForkBlock(Block block) {
     forkCache.add(block);
   }
@@ -360,35 +430,74 @@ public final class DownloadCacheImpl {
   }
 
   public boolean removeBlock(Block block) {
-    long stamp = dcsl.tryOptimisticRead();
-    boolean chkVal = blockCache.containsKey(block.getId());
-    long lastId = lastBlockId;
-    
-    if (!dcsl.validate(stamp)) {
-      stamp = dcsl.readLock();
-      try {
-        chkVal = blockCache.containsKey(block.getId());
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
+    if (!dcslRead(() -> heightById.containsKey(block.getId()))) {
+      return false;
     }
-    
-    if (chkVal) { // make sure there is something to remove
-      stamp = dcsl.writeLock();
-      try {
-    	unverified.remove(block.getId());
-        reverseCache.remove(block.getPreviousBlockId());
-        blockCache.remove(block.getId());
-        blockCacheSize -= block.getByteLength();
-      } finally {
-        dcsl.unlockWrite(stamp);
+    boolean emptied;
+    long stamp = dcsl.writeLock();
+    try {
+      int height = heightById.get(block.getId());
+      if (height < 0) {
+        return false;
       }
-      if (block.getId() == lastId) {
-        setLastVars();
+      // blocks are pushed in height order, the ones below this block can't be used anymore
+      while (count > 0 && headHeight <= height) {
+        removeHead();
       }
-      return true;
+      emptied = count == 0;
+    } finally {
+      dcsl.unlockWrite(stamp);
     }
-    return false;
+    if (emptied) {
+      setLastVars();
+    }
+    return true;
+  }
+
+  private void removeHead() {
+    int slot = slot(headHeight);
+    if (!verificationClaimed[slot]) {
+      unverifiedCount--;
+    }
+    heightById.remove(blockRing[slot].getId());
+    blockCacheSize -= blockSizes[slot];
+    blockRing[slot] = null;
+    headHeight++;
+    count--;
+    if (unverifiedHeight < headHeight) {
+      unverifiedHeight = headHeight;
+    }
+  }
+
+  private void removeTail() {
+    int slot = slot(headHeight + count - 1);
+    if (!verificationClaimed[slot]) {
+      unverifiedCount--;
+    }
+    heightById.remove(blockRing[slot].getId());
+    blockCacheSize -= blockSizes[slot];
+    blockRing[slot] = null;
+    count--;
+    if (unverifiedHeight > headHeight + count) {
+      unverifiedHeight = headHeight + count;
+    }
+  }
+
+  private void growRing() {
+    int capacity = blockRing.length * 2;
+    Block[] ring = new Block[capacity];
+    int[] sizes = new int[capacity];
+    boolean[] claimed = new boolean[capacity];
+    for (int height = headHeight; height < headHeight + count; height++) {
+      int oldSlot = slot(height);
+      int newSlot = height & (capacity - 1);
+      ring[newSlot] = blockRing[oldSlot];
+      sizes[newSlot] = blockSizes[oldSlot];
+      claimed[newSlot] = verificationClaimed[oldSlot];
+    }
+    blockSizes = sizes;
+    verificationClaimed = claimed;
+    blockRing = ring;
   }
 
   public int getPoCVersion(long blockId) {
@@ -423,21 +532,21 @@ public final class DownloadCacheImpl {
   }
     
   public Block getLastBlock() {
-    Long iLd = getLastCacheId();
-    if (iLd != null && blockCache.containsKey(iLd)) {
-      return dcslRead(() -> blockCache.get(iLd));
+    Block block = dcslRead(() -> getBlockAt(headHeight + count - 1));
+    if (block != null) {
+      return block;
     }
     return blockchain.getLastBlock();
   }
 
   public int size() {
-    return dcslRead(blockCache::size);
+    return dcslRead(() -> count);
   }
 
   public void printDebug() {
-    logger.info("BlockCache size: {}", blockCache.size());
-    logger.info("Unverified size: {}", unverified.size());
-    logger.info("Verified size: {}", (blockCache.size() - unverified.size()));
+    logger.info("BlockCache size: {}", count);
+    logger.info("Unverified size: {}", unverifiedCount);
+    logger.info("Verified size: {}", (count - unverifiedCount));
     
   }
   private void printLastVars() {
@@ -449,10 +558,11 @@ public final class DownloadCacheImpl {
   private void setLastVars() {
     long stamp = dcsl.writeLock();
     try {
-      if (! blockCache.isEmpty()) {
-        lastBlockId = blockCache.get(blockCache.keySet().toArray(new Long[0])[blockCache.keySet().size() - 1]).getId();
-        lastHeight = blockCache.get(lastBlockId).getHeight();
-        highestCumulativeDifficulty = blockCache.get(lastBlockId).getCumulativeDifficulty();
+      if (count > 0) {
+        Block lastBlock = getBlockAt(headHeight + count - 1);
+        lastBlockId = lastBlock.getId();
+        lastHeight = lastBlock.getHeight();
+        highestCumulativeDifficulty = lastBlock.getCumulativeDifficulty();
         logger.debug("Cache set to CacheData");
         printLastVars();
       } else {
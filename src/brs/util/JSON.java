@@ -22,6 +22,15 @@ public final class JSON {
         return json;
     }
 
+    /**
+     * Like {@link #prepareRequest(JsonObject)}, but tells the peer we accept a binary response
+     * for request types that support one.
+     */
+    public static JsonElement prepareBinaryRequest(final JsonObject json) {
+        json.addProperty(PROTOCOL, "B2");
+        return json;
+    }
+
     public static JsonElement parse(String jsonString) {
         return parse(new StringReader(jsonString));
     }
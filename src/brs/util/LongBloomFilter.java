@@ -0,0 +1,60 @@
+package brs.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over {@code long} values. {@link #mightContain} never returns false for a value that
+ * was added, and returns true for about 1% of the values that weren't, as long as no more than
+ * {@code expectedSize} values are added. Adding and querying are thread safe.
+ */
+public final class LongBloomFilter {
+
+  private static final int BITS_PER_VALUE = 10;
+  private static final int HASHES = 7;
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+
+  public LongBloomFilter(long expectedSize) {
+    long bits = Math.max(expectedSize, 1) * BITS_PER_VALUE;
+    int wordCount = (int) Math.min((bits + 63) / 64, Integer.MAX_VALUE - 8);
+    this.words = new AtomicLongArray(wordCount);
+    this.bitCount = (long) wordCount * 64;
+  }
+
+  public void add(long value) {
+    long hash = mix(value);
+    long step = (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+  }
+
+  public boolean mightContain(long value) {
+    long hash = mix(value);
+    long step = (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long mix(long value) {
+    // most ids are hashes already, but small ones like in tests would cluster without this
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
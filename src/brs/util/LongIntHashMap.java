@@ -0,0 +1,156 @@
+package brs.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from {@code long} keys to {@code int} values, without boxing either of them.
+ * Lookups of missing keys return the {@code noValue} given to the constructor. Not thread safe, but a
+ * lookup never fails or loops forever while another thread modifies the map, it only returns a wrong
+ * result, so it can be used for optimistic reads that are validated afterwards.
+ */
+public final class LongIntHashMap {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private final int noValue;
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+
+  public LongIntHashMap(int expectedSize, int noValue) {
+    this.noValue = noValue;
+    allocate(capacityFor(expectedSize));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  public int get(long key) {
+    int index = indexOf(key);
+    int[] currentValues = values;
+    return index >= 0 && index < currentValues.length ? currentValues[index] : noValue;
+  }
+
+  /**
+   * @return the previous value of the key, or {@code noValue} if there was none
+   */
+  public int put(long key, int value) {
+    int index = indexOf(key);
+    if (index >= 0) {
+      int previous = values[index];
+      values[index] = value;
+      return previous;
+    }
+    if ((size + 1) * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (used[i]) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    used[i] = true;
+    size++;
+    return noValue;
+  }
+
+  /**
+   * @return the removed value, or {@code noValue} if the key was not present
+   */
+  public int remove(long key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return noValue;
+    }
+    int previous = values[index];
+    int mask = keys.length - 1;
+    // shift the following entries of the probe sequence back instead of leaving a tombstone
+    int free = index;
+    int i = (index + 1) & mask;
+    while (used[i]) {
+      int ideal = slot(keys[i], mask);
+      if (((i - ideal) & mask) >= ((i - free) & mask)) {
+        keys[free] = keys[i];
+        values[free] = values[i];
+        free = i;
+      }
+      i = (i + 1) & mask;
+    }
+    used[free] = false;
+    size--;
+    return previous;
+  }
+
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(used, false);
+      size = 0;
+    }
+  }
+
+  private int indexOf(long key) {
+    long[] currentKeys = keys;
+    boolean[] currentUsed = used;
+    int length = Math.min(currentKeys.length, currentUsed.length);
+    int mask = length - 1;
+    int i = slot(key, mask);
+    for (int probes = 0; probes < length && currentUsed[i]; probes++) {
+      if (currentKeys[i] == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int slot(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2 && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldUsed[j]) {
+        int i = slot(oldKeys[j], mask);
+        while (used[i]) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+        used[i] = true;
+      }
+    }
+  }
+}
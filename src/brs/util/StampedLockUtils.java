@@ -6,7 +6,15 @@ import java.util.function.Supplier;
 public class StampedLockUtils {
     public static <T> T stampedLockRead(StampedLock lock, Supplier<T> supplier) {
         long stamp = lock.tryOptimisticRead();
-        T retVal = supplier.get();
+        T retVal = null;
+        try {
+            retVal = supplier.get();
+        } catch (RuntimeException e) {
+            // torn read of data that was modified meanwhile, validate fails and we read again
+            if (lock.validate(stamp)) {
+                throw e;
+            }
+        }
         if (!lock.validate(stamp)) {
             stamp = lock.readLock();
             try {
@@ -0,0 +1,85 @@
+package brs;
+
+import brs.common.QuickMocker;
+import brs.common.TestConstants;
+import brs.fluxcapacitor.FluxCapacitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static brs.Attachment.ORDINARY_PAYMENT;
+import static brs.Constants.FEE_QUANT;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Atm.class)
+public class BlockTest {
+
+    private static final int HEIGHT = 500000;
+
+    @Before
+    public void setUp() {
+        mockStatic(Atm.class);
+        Blockchain blockchain = mock(BlockchainImpl.class);
+        when(Atm.getBlockchain()).thenReturn(blockchain);
+        FluxCapacitor fluxCapacitor = QuickMocker.latestValueFluxCapacitor();
+        when(Atm.getFluxCapacitor()).thenReturn(fluxCapacitor);
+        TransactionType.init(blockchain, fluxCapacitor, null, null, null, null, null, null);
+    }
+
+    @Test
+    public void testBinaryFrameRoundTrip() throws AtmException.ValidationException {
+        Transaction transaction = new Transaction.Builder((byte) 1, TestConstants.TEST_PUBLIC_KEY_BYTES, 1, FEE_QUANT, 1000, (short) 1440, ORDINARY_PAYMENT)
+            .build();
+        transaction.sign(TestConstants.TEST_SECRET_PHRASE);
+        Block withTransaction = block(1000, Collections.singletonList(transaction), new byte[] { 1, 2, 3, 4 });
+        Block empty = block(1240, Collections.emptyList(), null);
+
+        ByteBuffer frame = ByteBuffer.wrap(Block.toBinaryFrame(Arrays.asList(withTransaction, empty)));
+        assertEquals(2, frame.getInt());
+        Block parsedWithTransaction = Block.parseBlock(frame, HEIGHT);
+        Block parsedEmpty = Block.parseBlock(frame, HEIGHT + 1);
+        assertFalse(frame.hasRemaining());
+
+        assertArrayEquals(withTransaction.getBytes(), parsedWithTransaction.getBytes());
+        assertEquals(withTransaction.getId(), parsedWithTransaction.getId());
+        assertEquals(1, parsedWithTransaction.getTransactions().size());
+        assertEquals(transaction.getId(), parsedWithTransaction.getTransactions().get(0).getId());
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, parsedWithTransaction.getBlockATs());
+
+        assertArrayEquals(empty.getBytes(), parsedEmpty.getBytes());
+        assertEquals(empty.getId(), parsedEmpty.getId());
+        assertTrue(parsedEmpty.getTransactions().isEmpty());
+    }
+
+    @Test
+    public void testNoBlockATsParseTheSameFromBinaryAndJson() throws AtmException.ValidationException {
+        Block block = block(1000, Collections.emptyList(), null);
+
+        ByteBuffer frame = ByteBuffer.wrap(Block.toBinaryFrame(Collections.singletonList(block)));
+        frame.getInt();
+        Block fromBinary = Block.parseBlock(frame, HEIGHT);
+        Block fromJson = Block.parseBlock(block.getJsonObject(), HEIGHT);
+
+        assertNull(fromBinary.getBlockATs());
+        assertNull(fromJson.getBlockATs());
+        assertEquals(fromJson.getId(), fromBinary.getId());
+    }
+
+    private Block block(int timestamp, List<Transaction> transactions, byte[] blockATs) throws AtmException.ValidationException {
+        Block block = new Block(3, timestamp, 1234L, 1, FEE_QUANT * transactions.size(), 0, new byte[32],
+            TestConstants.TEST_PUBLIC_KEY_BYTES, new byte[32], null, new byte[32], transactions, 42L, blockATs, HEIGHT);
+        block.sign(TestConstants.TEST_SECRET_PHRASE);
+        return block;
+    }
+}
@@ -0,0 +1,104 @@
+package brs;
+
+import brs.db.DerivedTable;
+import brs.db.cache.DBCacheManagerImpl;
+import brs.db.sql.Db;
+import brs.db.sql.SqlIndirectIncomingStore;
+import brs.db.store.DerivedTableManager;
+import brs.db.store.IndirectIncomingStore.IndirectIncoming;
+import brs.db.store.Stores;
+import brs.props.PropertyService;
+import brs.props.Props;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+/**
+ * Runs a bulk sync group against a database the way pushBlock does: a savepoint per block,
+ * the derived tables finished before the savepoint is released.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Atm.class)
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*"})
+public class BulkSyncGroupDbTest {
+
+    private Stores stores;
+    private BulkSyncGroup group;
+    private SqlIndirectIncomingStore indirectIncomingStore;
+    private DerivedTable indirectIncomingTable;
+    private final List<Block> announced = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mockStatic(Atm.class);
+        PropertyService propertyService = mock(PropertyService.class);
+        when(Atm.getPropertyService()).thenReturn(propertyService);
+        when(propertyService.getString(eq(Props.DB_URL))).thenReturn("jdbc:h2:mem:bulkSyncGroupTest;DB_CLOSE_DELAY=-1");
+        when(propertyService.getInt(eq(Props.DB_CONNECTIONS))).thenReturn(1);
+        Db.init(propertyService, mock(DBCacheManagerImpl.class));
+
+        DerivedTableManager derivedTableManager = mock(DerivedTableManager.class);
+        indirectIncomingStore = new SqlIndirectIncomingStore(derivedTableManager);
+        ArgumentCaptor<DerivedTable> tableCaptor = ArgumentCaptor.forClass(DerivedTable.class);
+        verify(derivedTableManager).registerDerivedTable(tableCaptor.capture());
+        indirectIncomingTable = tableCaptor.getValue();
+
+        // the transaction methods of Stores only delegate to Db
+        stores = mock(Stores.class, CALLS_REAL_METHODS);
+        BlockchainImpl blockchain = mock(BlockchainImpl.class);
+        when(blockchain.getLastBlock()).thenReturn(mock(Block.class));
+        group = new BulkSyncGroup(stores, blockchain, announced::add);
+    }
+
+    @After
+    public void tearDown() {
+        Db.shutdown();
+    }
+
+    @Test
+    public void testRowsOfEarlierBlocksSurviveFailedBlockOfGroup() {
+        Block first = mock(Block.class);
+        Block second = mock(Block.class);
+        group.begin();
+        try {
+            push(first, new IndirectIncoming(1L, 10L, 1));
+            push(second, new IndirectIncoming(1L, 11L, 2));
+
+            // the third block fails and is rolled back to its savepoint, the group goes on
+            Savepoint third = stores.setSavepoint();
+            indirectIncomingStore.addIndirectIncomings(Collections.singletonList(new IndirectIncoming(1L, 12L, 3)));
+            stores.rollbackToSavepoint(third);
+
+            group.commit();
+        } finally {
+            group.end();
+        }
+
+        assertEquals(2, indirectIncomingStore.getLastHeight());
+        assertEquals(2, indirectIncomingStore.getIndirectIncomings(1L, 0, -1).size());
+        assertEquals(2, announced.size());
+    }
+
+    private void push(Block block, IndirectIncoming indirectIncoming) {
+        Savepoint savepoint = stores.setSavepoint();
+        indirectIncomingStore.addIndirectIncomings(Collections.singletonList(indirectIncoming));
+        indirectIncomingTable.finish();
+        stores.releaseSavepoint(savepoint);
+        group.pushed(block);
+    }
+}
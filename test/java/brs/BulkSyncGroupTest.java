@@ -0,0 +1,115 @@
+package brs;
+
+import brs.db.store.Stores;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public class BulkSyncGroupTest {
+
+    private Stores stores;
+    private BlockchainImpl blockchain;
+    private final List<Block> announced = new ArrayList<>();
+    private BulkSyncGroup group;
+
+    private final Block lastBlockBefore = mock(Block.class);
+    private final Block first = mock(Block.class);
+    private final Block second = mock(Block.class);
+
+    @Before
+    public void setUp() {
+        stores = mock(Stores.class);
+        blockchain = mock(BlockchainImpl.class);
+        when(blockchain.getLastBlock()).thenReturn(lastBlockBefore);
+        group = new BulkSyncGroup(stores, blockchain, announced::add);
+    }
+
+    @Test
+    public void testBlocksAreAnnouncedAfterCommit() {
+        group.begin();
+        group.pushed(first);
+        group.pushed(second);
+        assertTrue(announced.isEmpty());
+
+        group.commit();
+        assertTrue(announced.isEmpty());
+        group.end();
+
+        assertEquals(Arrays.asList(first, second), announced);
+        verify(stores).commitTransaction();
+        verify(stores).endTransaction();
+    }
+
+    @Test
+    public void testRollbackRestoresLastBlockAndAnnouncesNothing() {
+        group.begin();
+        group.pushed(first);
+        // the second block of the group fails with a RuntimeException
+        group.rollback();
+        group.end();
+
+        assertTrue(announced.isEmpty());
+        verify(stores).rollbackTransaction();
+        verify(stores, never()).commitTransaction();
+        verify(blockchain).setLastBlock(lastBlockBefore);
+
+        // the next group starts clean
+        group.begin();
+        group.pushed(second);
+        group.commit();
+        group.end();
+        assertEquals(Collections.singletonList(second), announced);
+    }
+
+    @Test
+    public void testOtherThreadsWaitForTheGroup() throws InterruptedException {
+        group.begin();
+        assertFalse(tryLockFromOtherThread());
+        group.commit();
+        group.end();
+
+        assertTrue(tryLockFromOtherThread());
+    }
+
+    @Test
+    public void testLockIsReleasedWhenTransactionCannotBegin() throws InterruptedException {
+        doThrow(new IllegalStateException("Transaction already in progress")).when(stores).beginTransaction();
+        try {
+            group.begin();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertFalse(group.isOpen());
+        }
+        assertTrue(tryLockFromOtherThread());
+    }
+
+    private boolean tryLockFromOtherThread() throws InterruptedException {
+        AtomicBoolean locked = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            if (group.getLock().tryLock()) {
+                locked.set(true);
+                group.getLock().unlock();
+            }
+        });
+        thread.start();
+        thread.join();
+        return locked.get();
+    }
+
+    @Test
+    public void testBlocksOutsideOfGroupAreAnnouncedRightAway() {
+        group.pushed(first);
+        assertEquals(Collections.singletonList(first), announced);
+    }
+}
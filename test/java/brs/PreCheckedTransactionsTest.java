@@ -0,0 +1,81 @@
+package brs;
+
+import brs.unconfirmedtransactions.TouchedKeys;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class PreCheckedTransactionsTest {
+
+    private PreCheckedTransactions preCheckedTransactions;
+
+    private final Transaction fromFirstSender = mock(Transaction.class);
+    private final Transaction fromSecondSender = mock(Transaction.class);
+
+    @Before
+    public void setUp() {
+        when(fromFirstSender.getId()).thenReturn(1L);
+        when(fromFirstSender.getSenderId()).thenReturn(100L);
+        when(fromSecondSender.getId()).thenReturn(2L);
+        when(fromSecondSender.getSenderId()).thenReturn(200L);
+        preCheckedTransactions = new PreCheckedTransactions();
+        preCheckedTransactions.set(Arrays.asList(fromFirstSender, fromSecondSender), preCheckedTransactions.getGeneration());
+    }
+
+    @Test
+    public void testCarriedOverBlocksThatDontTouchThem() {
+        TouchedKeys touchedKeys = new TouchedKeys();
+        touchedKeys.addAccount(300L);
+        preCheckedTransactions.forget(touchedKeys);
+
+        assertTrue(preCheckedTransactions.contains(1L));
+        assertTrue(preCheckedTransactions.contains(2L));
+    }
+
+    @Test
+    public void testTouchedTransactionsAreDropped() {
+        TouchedKeys touchedKeys = new TouchedKeys();
+        touchedKeys.addAccount(100L);
+        preCheckedTransactions.forget(touchedKeys);
+
+        assertFalse(preCheckedTransactions.contains(1L));
+        assertTrue(preCheckedTransactions.contains(2L));
+    }
+
+    @Test
+    public void testPoppedBlocksDropEverything() {
+        TouchedKeys touchedKeys = new TouchedKeys();
+        touchedKeys.touchAll();
+        preCheckedTransactions.forget(touchedKeys);
+
+        assertFalse(preCheckedTransactions.contains(1L));
+        assertFalse(preCheckedTransactions.contains(2L));
+    }
+
+    @Test
+    public void testChecksRacingWithABlockAreNotKept() {
+        long generation = preCheckedTransactions.getGeneration();
+        preCheckedTransactions.forget(new TouchedKeys());
+        preCheckedTransactions.set(Collections.singletonList(fromFirstSender), generation);
+
+        assertFalse(preCheckedTransactions.contains(1L));
+    }
+
+    @Test
+    public void testSetFollowsTheUnconfirmedTransactions() {
+        preCheckedTransactions.set(Collections.singletonList(fromSecondSender), preCheckedTransactions.getGeneration());
+
+        assertFalse(preCheckedTransactions.contains(1L));
+        assertTrue(preCheckedTransactions.contains(2L));
+    }
+}
@@ -0,0 +1,76 @@
+package brs;
+
+import brs.AtmException.NotCurrentlyValidException;
+import brs.db.store.Dbs;
+import brs.db.store.Stores;
+import brs.props.PropertyService;
+import brs.services.AccountService;
+import brs.services.TimeService;
+import brs.services.TransactionService;
+import brs.unconfirmedtransactions.TouchedKeys;
+import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
+import brs.util.ThreadPool;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public class TransactionProcessorImplTest {
+
+    private UnconfirmedTransactionStore unconfirmedTransactionStore;
+    private TransactionService transactionService;
+    private TransactionProcessorImpl transactionProcessor;
+
+    private Transaction fromFirstSender;
+    private Transaction fromSecondSender;
+
+    @Before
+    public void setUp() {
+        unconfirmedTransactionStore = mock(UnconfirmedTransactionStore.class);
+        transactionService = mock(TransactionService.class);
+        Stores stores = mock(Stores.class);
+        when(stores.getUnconfirmedTransactionStore()).thenReturn(unconfirmedTransactionStore);
+
+        transactionProcessor = new TransactionProcessorImpl(mock(PropertyService.class), null, mock(Blockchain.class),
+                stores, mock(TimeService.class), mock(Dbs.class), mock(AccountService.class), transactionService, mock(ThreadPool.class));
+
+        fromFirstSender = mock(Transaction.class);
+        when(fromFirstSender.getSenderId()).thenReturn(1L);
+        fromSecondSender = mock(Transaction.class);
+        when(fromSecondSender.getSenderId()).thenReturn(2L);
+        when(unconfirmedTransactionStore.getAll()).thenReturn(Arrays.asList(fromFirstSender, fromSecondSender));
+    }
+
+    @Test
+    public void testRevalidateOnlyTouchedAccounts() throws AtmException.ValidationException {
+        TouchedKeys touchedKeys = new TouchedKeys();
+        touchedKeys.addAccount(1L);
+
+        transactionProcessor.revalidateUnconfirmedTransactions(touchedKeys);
+
+        verify(unconfirmedTransactionStore).resetAccountBalances(Collections.singleton(1L));
+        verify(transactionService).validate(fromFirstSender);
+        verify(transactionService, never()).validate(fromSecondSender);
+    }
+
+    @Test
+    public void testRevalidateEverythingAfterPopOff() throws AtmException.ValidationException {
+        doThrow(new NotCurrentlyValidException("Insufficient funds")).when(transactionService).validate(fromSecondSender);
+        TouchedKeys touchedKeys = new TouchedKeys();
+        touchedKeys.touchAll();
+
+        transactionProcessor.revalidateUnconfirmedTransactions(touchedKeys);
+
+        verify(unconfirmedTransactionStore).resetAccountBalances(new HashSet<>(Arrays.asList(1L, 2L)));
+        verify(transactionService).validate(fromFirstSender);
+        verify(unconfirmedTransactionStore).remove(fromSecondSender);
+        verify(unconfirmedTransactionStore, never()).remove(fromFirstSender);
+    }
+}
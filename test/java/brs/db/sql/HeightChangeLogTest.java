@@ -0,0 +1,83 @@
+package brs.db.sql;
+
+import brs.db.AtmKey;
+import org.jooq.impl.DSL;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HeightChangeLogTest {
+
+    private final DbKey.LongKeyFactory<Object> keyFactory = new DbKey.LongKeyFactory<Object>(DSL.field("id", Long.class)) {
+        @Override
+        public AtmKey newKey(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private DbKey key(long id) {
+        return (DbKey) keyFactory.newKey(id);
+    }
+
+    @Test
+    public void testRollback() {
+        HeightChangeLog changeLog = new HeightChangeLog("test", 100);
+        assertNull(changeLog.getKeysAbove(10));
+        changeLog.record(10, key(1));
+        changeLog.record(11, key(2));
+        changeLog.record(12, key(1));
+        changeLog.record(12, key(3));
+        assertEquals(new HashSet<>(Arrays.asList(key(1), key(3))), changeLog.getKeysAbove(11));
+        // rows below the first logged write are unknown
+        assertNull(changeLog.getKeysAbove(8));
+
+        changeLog.rolledBack(10);
+        assertTrue(changeLog.getKeysAbove(10).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(key(1))), changeLog.getKeysAbove(9));
+    }
+
+    @Test
+    public void testTrimNeedsCompleteLog() {
+        HeightChangeLog changeLog = new HeightChangeLog("test", 100);
+        changeLog.record(10, key(1));
+        assertNull(changeLog.getKeysToTrim(20));
+        // the first trim scans and only then the log knows which keys have a single old row
+        changeLog.trimmed(5);
+        assertNull(changeLog.getKeysToTrim(20));
+        changeLog.trimmed(10);
+        changeLog.record(15, key(2));
+        changeLog.record(25, key(3));
+        assertEquals(new HashSet<>(Arrays.asList(key(1), key(2))), changeLog.getKeysToTrim(20));
+        changeLog.trimmed(20);
+        assertTrue(changeLog.getKeysToTrim(20).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(key(3))), changeLog.getKeysToTrim(30));
+    }
+
+    @Test
+    public void testTruncateAndReset() {
+        HeightChangeLog changeLog = new HeightChangeLog("test", 100);
+        changeLog.truncated();
+        assertTrue(changeLog.getKeysAbove(0).isEmpty());
+        changeLog.record(5, key(1));
+        assertEquals(new HashSet<>(Arrays.asList(key(1))), changeLog.getKeysToTrim(10));
+
+        changeLog.reset();
+        assertNull(changeLog.getKeysAbove(0));
+        assertNull(changeLog.getKeysToTrim(10));
+    }
+
+    @Test
+    public void testRetention() {
+        HeightChangeLog changeLog = new HeightChangeLog("test", 10);
+        changeLog.record(1, key(1));
+        changeLog.record(20, key(2));
+        assertNull(changeLog.getKeysAbove(5));
+        assertEquals(new HashSet<>(Arrays.asList(key(2))), changeLog.getKeysAbove(9));
+    }
+}
@@ -0,0 +1,81 @@
+package brs.db.sql;
+
+import brs.Atm;
+import brs.db.DerivedTable;
+import brs.db.cache.DBCacheManagerImpl;
+import brs.db.store.DerivedTableManager;
+import brs.db.store.IndirectIncomingStore.IndirectIncoming;
+import brs.props.PropertyService;
+import brs.props.Props;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.sql.Savepoint;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Atm.class)
+@PowerMockIgnore({"javax.management.*", "javax.net.ssl.*"})
+public class SqlIndirectIncomingStoreTest {
+
+    private SqlIndirectIncomingStore store;
+    private DerivedTable indirectIncomingTable;
+
+    @Before
+    public void setUp() {
+        mockStatic(Atm.class);
+        PropertyService propertyService = mock(PropertyService.class);
+        when(Atm.getPropertyService()).thenReturn(propertyService);
+        when(propertyService.getString(eq(Props.DB_URL))).thenReturn("jdbc:h2:mem:indirectIncomingTest;DB_CLOSE_DELAY=-1");
+        when(propertyService.getInt(eq(Props.DB_CONNECTIONS))).thenReturn(1);
+        Db.init(propertyService, mock(DBCacheManagerImpl.class));
+
+        DerivedTableManager derivedTableManager = mock(DerivedTableManager.class);
+        store = new SqlIndirectIncomingStore(derivedTableManager);
+        ArgumentCaptor<DerivedTable> tableCaptor = ArgumentCaptor.forClass(DerivedTable.class);
+        verify(derivedTableManager).registerDerivedTable(tableCaptor.capture());
+        indirectIncomingTable = tableCaptor.getValue();
+    }
+
+    @After
+    public void tearDown() {
+        Db.shutdown();
+    }
+
+    @Test
+    public void testRowsOfCommittedBlockSurviveFailedBlockInSameGroup() {
+        Db.beginTransaction();
+        try {
+            // block 1 of the group, like pushBlock does it
+            Savepoint firstBlock = Db.setSavepoint();
+            store.addIndirectIncomings(Collections.singletonList(new IndirectIncoming(1L, 10L, 1)));
+            indirectIncomingTable.finish();
+            Db.releaseSavepoint(firstBlock);
+
+            // block 2 of the group fails
+            Savepoint secondBlock = Db.setSavepoint();
+            store.addIndirectIncomings(Collections.singletonList(new IndirectIncoming(2L, 20L, 2)));
+            Db.rollbackToSavepoint(secondBlock);
+
+            Db.commitTransaction();
+        } finally {
+            Db.endTransaction();
+        }
+
+        assertEquals(1, store.getLastHeight());
+        assertEquals(Collections.singletonList(10L), store.getIndirectIncomings(1L, 0, -1));
+    }
+}
@@ -12,7 +12,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentMatchers;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -31,6 +33,8 @@ public class GetNextBlocksTest {
         mockPeer = mock(Peer.class);
         Block mockBlock = mock(Block.class);
         when(mockBlock.getJsonObject()).thenReturn(new JsonObject());
+        when(mockBlock.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(mockBlock.getTransactions()).thenReturn(Collections.emptyList());
         List<Block> blocks = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
             blocks.add(mockBlock);
@@ -59,6 +63,22 @@ public class GetNextBlocksTest {
         }
     }
 
+    @Test
+    public void testGetNextBlocksBinary() {
+        JsonObject request = new JsonObject();
+        request.addProperty("blockId", Long.toUnsignedString(Genesis.GENESIS_BLOCK_ID));
+        byte[] response = getNextBlocks.processBinaryRequest(request, mockPeer);
+        assertNotNull(response);
+        ByteBuffer frame = ByteBuffer.wrap(response);
+        assertEquals(100, frame.getInt());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(3, frame.getInt());
+            frame.position(frame.position() + 3);
+            assertEquals(0, frame.getInt());
+        }
+        assertFalse(frame.hasRemaining());
+    }
+
     @Test
     public void testGetNextBlocks_noIdSpecified() {
         JsonObject request = new JsonObject();
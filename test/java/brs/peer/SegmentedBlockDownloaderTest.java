@@ -0,0 +1,55 @@
+package brs.peer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnit4.class)
+public class SegmentedBlockDownloaderTest {
+
+    private SegmentedBlockDownloader downloader;
+    private Peer peer;
+
+    @Before
+    public void setUp() {
+        downloader = new SegmentedBlockDownloader(1, 100);
+        peer = mock(Peer.class);
+        when(peer.supportsBinaryBlocks()).thenReturn(true);
+    }
+
+    @Test
+    public void testFailedBinaryRequestIsRetriedAsJson() {
+        when(peer.sendBinary(any())).thenReturn(null);
+        JsonObject response = new JsonObject();
+        JsonArray nextBlocks = new JsonArray();
+        nextBlocks.add(new JsonObject());
+        response.add("nextBlocks", nextBlocks);
+        when(peer.send(any())).thenReturn(response);
+
+        SegmentedBlockDownloader.Segment segment = downloader.getNextBlocks(peer, 1L, 10);
+
+        assertNotNull(segment);
+        assertEquals(1, segment.getBlockCount());
+        ArgumentCaptor<JsonElement> request = ArgumentCaptor.forClass(JsonElement.class);
+        verify(peer).send(request.capture());
+        assertEquals("B1", request.getValue().getAsJsonObject().get("protocol").getAsString());
+    }
+
+    @Test
+    public void testNoSegmentIfJsonFailsToo() {
+        when(peer.sendBinary(any())).thenReturn(null);
+        when(peer.send(any())).thenReturn(null);
+
+        assertNull(downloader.getNextBlocks(peer, 1L, 10));
+        verify(peer, times(1)).send(any());
+    }
+}
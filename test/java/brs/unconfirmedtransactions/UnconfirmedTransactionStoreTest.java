@@ -9,7 +9,6 @@ import brs.common.QuickMocker;
 import brs.common.TestConstants;
 import brs.db.AtmKey;
 import brs.db.AtmKey.LongKeyFactory;
-import brs.db.TransactionDb;
 import brs.db.VersionedBatchEntityTable;
 import brs.db.store.AccountStore;
 import brs.fluxcapacitor.FluxCapacitor;
@@ -23,10 +22,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.runner.RunWith;
-import org.mockito.Answers;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Collections;
 import java.util.List;
 
 import static brs.Attachment.ORDINARY_PAYMENT;
@@ -47,6 +46,7 @@ public class UnconfirmedTransactionStoreTest {
   private AccountStore accountStoreMock;
   private VersionedBatchEntityTable<Account> accountTableMock;
   private LongKeyFactory<Account> accountAtmKeyFactoryMock;
+  private Account mockAccount;
 
   private TimeService timeService = new TimeServiceImpl();
   private UnconfirmedTransactionStore t;
@@ -68,11 +68,10 @@ public class UnconfirmedTransactionStoreTest {
     accountStoreMock = mock(AccountStore.class);
     accountTableMock = mock(VersionedBatchEntityTable.class);
     accountAtmKeyFactoryMock = mock(LongKeyFactory.class);
-    TransactionDb transactionDbMock = mock(TransactionDb.class, Answers.RETURNS_DEFAULTS);
     when(accountStoreMock.getAccountTable()).thenReturn(accountTableMock);
     when(accountStoreMock.getAccountKeyFactory()).thenReturn(accountAtmKeyFactoryMock);
 
-    final Account mockAccount = mock(Account.class);
+    mockAccount = mock(Account.class);
     final AtmKey mockAccountKey = mock(AtmKey.class);
     when(accountAtmKeyFactoryMock.newKey(eq(123L))).thenReturn(mockAccountKey);
     when(accountTableMock.get(eq(mockAccountKey))).thenReturn(mockAccount);
@@ -84,7 +83,7 @@ public class UnconfirmedTransactionStoreTest {
 
     TransactionType.init(mockBlockChain, mockFluxCapacitor, null, null, null, null, null, null);
 
-    t = new UnconfirmedTransactionStoreImpl(timeService, mockPropertyService, accountStoreMock, transactionDbMock);
+    t = new UnconfirmedTransactionStoreImpl(timeService, mockPropertyService, accountStoreMock);
   }
 
   @DisplayName("When we add Unconfirmed Transactions to the store, they can be retrieved")
@@ -105,6 +104,69 @@ public class UnconfirmedTransactionStoreTest {
   }
 
 
+  @DisplayName("Unconfirmed transactions can be looked up by sender until they are removed")
+  @Test
+  public void transactionsCanGetRetrievedBySender() throws ValidationException {
+
+    when(mockBlockChain.getHeight()).thenReturn(20);
+
+    for (int i = 1; i <= 10; i++) {
+      Transaction transaction = new Transaction.Builder((byte) 1, TestConstants.TEST_PUBLIC_KEY_BYTES, i, FEE_QUANT * i, timeService.getEpochTime() + 50000, (short) 500, ORDINARY_PAYMENT)
+          .id(i).senderId(123L).build();
+      transaction.sign(TestConstants.TEST_SECRET_PHRASE);
+      t.put(transaction, null);
+    }
+
+    assertEquals(10, t.getAllFrom(123L).size());
+    assertTrue(t.getAllFrom(124L).isEmpty());
+
+    t.remove(t.get(1L));
+
+    assertEquals(9, t.getAllFrom(123L).size());
+    assertFalse(t.exists(1L));
+    assertEquals(9, t.getAmount());
+    assertEquals(FEE_QUANT * 2, t.getAll().get(0).getFeeNQT());
+  }
+
+  @DisplayName("Resetting the balance of an account only removes its transactions its balance no longer covers")
+  @Test
+  public void resetAccountBalancesRemovesTransactionsNoLongerCovered() throws ValidationException {
+
+    when(mockBlockChain.getHeight()).thenReturn(20);
+
+    for (int i = 1; i <= 10; i++) {
+      Transaction transaction = new Transaction.Builder((byte) 1, TestConstants.TEST_PUBLIC_KEY_BYTES, 1, FEE_QUANT, timeService.getEpochTime() + 50000, (short) 500, ORDINARY_PAYMENT)
+          .id(i).senderId(123L).build();
+      transaction.sign(TestConstants.TEST_SECRET_PHRASE);
+      t.put(transaction, null);
+    }
+
+    when(mockAccount.getUnconfirmedBalanceNQT()).thenReturn(5 * (FEE_QUANT + 1));
+
+    t.resetAccountBalances(Collections.singleton(124L));
+    assertEquals(10, t.getAmount());
+
+    t.resetAccountBalances(Collections.singleton(123L));
+    assertEquals(5, t.getAmount());
+    assertEquals(5, t.getAllFrom(123L).size());
+  }
+
+  @DisplayName("Marking the fingerprints of our own transactions, which have no peer, is ignored")
+  @Test
+  public void markingFingerPrintsWithoutPeerIsIgnored() throws ValidationException {
+
+    when(mockBlockChain.getHeight()).thenReturn(20);
+
+    Transaction transaction = new Transaction.Builder((byte) 1, TestConstants.TEST_PUBLIC_KEY_BYTES, 1, FEE_QUANT * 100, timeService.getEpochTime() + 50000, (short) 500, ORDINARY_PAYMENT)
+        .id(1).senderId(123L).build();
+    transaction.sign(TestConstants.TEST_SECRET_PHRASE);
+    t.put(transaction, null);
+
+    t.markFingerPrintsOf(null, Collections.singletonList(transaction));
+
+    assertEquals(1, t.getAllFor(mock(Peer.class)).size());
+  }
+
   @DisplayName("When a transaction got added by a peer, he won't get it reflected at him when getting unconfirmed transactions")
   @Test
   public void transactionsGivenByPeerWontGetReturnedToPeer() throws ValidationException {
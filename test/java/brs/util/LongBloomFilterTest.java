@@ -0,0 +1,39 @@
+package brs.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LongBloomFilterTest {
+    @Test
+    public void testNoFalseNegatives() {
+        LongBloomFilter filter = new LongBloomFilter(10000);
+        for (long value = 0; value < 10000; value++) {
+            filter.add(value);
+        }
+        for (long value = 0; value < 10000; value++) {
+            assertTrue(filter.mightContain(value));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        LongBloomFilter filter = new LongBloomFilter(100000);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            filter.add(random.nextLong());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 2000);
+    }
+}
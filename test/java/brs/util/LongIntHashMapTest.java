@@ -0,0 +1,57 @@
+package brs.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LongIntHashMapTest {
+    @Test
+    public void testPutGetRemove() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        assertEquals(-1, map.get(0L));
+        assertEquals(-1, map.put(0L, 5));
+        assertEquals(-1, map.put(Long.MIN_VALUE, 7));
+        assertEquals(5, map.put(0L, 6));
+        assertEquals(2, map.size());
+        assertEquals(6, map.get(0L));
+        assertEquals(7, map.get(Long.MIN_VALUE));
+        assertTrue(map.containsKey(Long.MIN_VALUE));
+        assertEquals(6, map.remove(0L));
+        assertEquals(-1, map.remove(0L));
+        assertFalse(map.containsKey(0L));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        LongIntHashMap map = new LongIntHashMap(0, -1);
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // small key range, so removals hit collision chains
+            long key = random.nextInt(5000) * 0x100000000L;
+            if (random.nextInt(3) == 0) {
+                Integer removed = reference.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                Integer previous = reference.put(key, i);
+                assertEquals(previous == null ? -1 : previous, map.put(key, i));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (long key = 0; key < 5000; key++) {
+            Integer value = reference.get(key * 0x100000000L);
+            assertEquals(value == null ? -1 : value, map.get(key * 0x100000000L));
+        }
+    }
+}